@@ -0,0 +1,75 @@
+package simple.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simple.ByteCodeInterpreter;
+import simple.Parser;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One program over many instances of its memory: ByteCodeInterpreter.run once per instance,
+ * or runColumns once for all of them. instructions/s counts the instructions of every instance either way.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColumnarBenchmark {
+
+    @Param({"scalar", "columnar"})
+    public String mode;
+
+    @Param({"256"})
+    public int lanes;
+
+    private ByteCodeInterpreter interpreter;
+    private int[][] columns;
+    private int instructions;
+
+    @Setup(Level.Trial)
+    public void compile(ProgramState program){
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Parser parser = new Parser(program.file.toString());
+        parser.parseProgram();
+        System.setOut(out);
+
+        int[] bytecode = parser.getInterpreter().copyByteCode();
+        this.interpreter = new ByteCodeInterpreter(parser.getInterpreter().getMemorySize());
+        for (int i = 0; i < bytecode.length; i += 2) {
+            this.interpreter.generate(bytecode[i], bytecode[i + 1]);
+        }
+        this.interpreter.fuse();
+        this.instructions = bytecode.length / 2;
+        this.columns = new int[this.interpreter.getMemorySize()][this.lanes];
+    }
+
+    @Benchmark
+    public Object run(Throughput throughput){
+        if (this.mode.equals("columnar")){
+            this.interpreter.runColumns(this.columns, this.lanes);
+        }
+        else{
+            for (int lane = 0; lane < this.lanes; lane++) {
+                this.interpreter.run();
+            }
+        }
+        throughput.instructions += (long) this.instructions * this.lanes;
+        return this.interpreter;
+    }
+}
@@ -0,0 +1,77 @@
+package simple.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simple.ByteCodeInterpreter;
+import simple.Parser;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ByteCodeInterpreter.run alone: the program is compiled once and its bytecode copied
+ * into an interpreter with one memory slot per identifier, like the Parser allocates.
+ * Runs with and without superinstructions, compiled by the JitCompiler, and with independent statements in parallel.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InterpreterBenchmark {
+
+    /** plain bytecode, bytecode with superinstructions, compiled to a JVM class, or superinstructions on the common pool */
+    @Param({"interpreted", "superinstructions", "compiled", "parallel"})
+    public String mode;
+
+    private ByteCodeInterpreter interpreter;
+    private int instructions;
+
+    @Setup(Level.Trial)
+    public void compile(ProgramState program){
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Parser parser = new Parser(program.file.toString());
+        parser.parseProgram();
+        System.setOut(out);
+
+        int[] bytecode = parser.getInterpreter().copyByteCode();
+        this.interpreter = new ByteCodeInterpreter(parser.getInterpreter().getMemorySize());
+        for (int i = 0; i < bytecode.length; i += 2) {
+            this.interpreter.generate(bytecode[i], bytecode[i + 1]);
+        }
+        // instructions/s counts the instructions of the original program either way
+        this.instructions = bytecode.length / 2;
+        if (this.mode.equals("superinstructions") || this.mode.equals("parallel")){
+            this.interpreter.fuse();
+        }
+        else if (this.mode.equals("compiled")){
+            this.interpreter.setCompileThreshold(0);
+        }
+    }
+
+    @Benchmark
+    public ByteCodeInterpreter run(Throughput throughput){
+        if (this.mode.equals("parallel")){
+            this.interpreter.runParallel(ForkJoinPool.commonPool());
+        }
+        else{
+            this.interpreter.run();
+        }
+        throughput.instructions += this.instructions;
+        return this.interpreter;
+    }
+}
@@ -0,0 +1,63 @@
+package simple.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import simple.Lexer;
+import simple.Token;
+import simple.TokenBuffer;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexer throughput on a generated program, read from memory so no disk IO is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerBenchmark {
+
+    private static Lexer lexer(ProgramState program){
+        return new Lexer(Channels.newChannel(new ByteArrayInputStream(program.source)));
+    }
+
+    @Benchmark
+    public TokenBuffer tokenize(ProgramState program, Throughput throughput){
+        TokenBuffer tokens = lexer(program).tokenize();
+        throughput.bytes += program.source.length;
+        throughput.tokens += tokens.size();
+        return tokens;
+    }
+
+    @Benchmark
+    public ArrayList<Token> getAllTokens(ProgramState program, Throughput throughput){
+        ArrayList<Token> tokens = lexer(program).getAllTokens();
+        throughput.bytes += program.source.length;
+        throughput.tokens += tokens.size();
+        return tokens;
+    }
+
+    @Benchmark
+    public void getNextToken(ProgramState program, Throughput throughput, Blackhole blackhole) throws Exception {
+        Lexer lexer = lexer(program);
+        long count = 0;
+        Token token;
+        do {
+            token = lexer.getNextToken();
+            blackhole.consume(token);
+            count++;
+        } while (!Lexer.EOFTOKEN.equals(token.type));
+        throughput.bytes += program.source.length;
+        throughput.tokens += count;
+    }
+}
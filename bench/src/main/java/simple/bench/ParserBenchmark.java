@@ -0,0 +1,65 @@
+package simple.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import simple.Parser;
+import simple.Pipeline;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parser.parseProgram on a generated program, including reading the file and lexing it,
+ * and the same program lexed, parsed and executed on three threads by a Pipeline.
+ * The "Valid Program" output of every invocation is silenced.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    private PrintStream out;
+
+    @Setup(Level.Trial)
+    public void silence(){
+        this.out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void restore(){
+        System.setOut(this.out);
+    }
+
+    @Benchmark
+    public Parser parseProgram(ProgramState program, Throughput throughput){
+        Parser parser = new Parser(program.file.toString());
+        parser.parseProgram();
+        throughput.bytes += program.source.length;
+        throughput.instructions += parser.getInterpreter().getCodeSize() / 2;
+        return parser;
+    }
+
+    @Benchmark
+    public Pipeline pipeline(ProgramState program, Throughput throughput) throws IOException {
+        Pipeline pipeline = new Pipeline(program.file);
+        pipeline.run();
+        throughput.bytes += program.source.length;
+        return pipeline;
+    }
+}
@@ -0,0 +1,72 @@
+package simple.bench;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates valid SIMPLE programs for the benchmarks.
+ * The same parameters and seed always give the same program, so runs can be compared.
+ * - statements: number of assignments
+ * - expressionLength: number of terms on the right-hand side of each assignment
+ * - identifiers: number of distinct identifiers assigned to, reused round robin
+ */
+public class ProgramGenerator {
+
+    private final int statements;
+    private final int expressionLength;
+    private final int identifiers;
+    private final long seed;
+
+    public ProgramGenerator(int statements, int expressionLength, int identifiers, long seed){
+        if (statements < 1 || expressionLength < 1 || identifiers < 1){
+            throw new IllegalArgumentException("statements, expressionLength and identifiers must be positive");
+        }
+        this.statements = statements;
+        this.expressionLength = expressionLength;
+        this.identifiers = identifiers;
+        this.seed = seed;
+    }
+
+    /**
+     * Build the program text, one assignment per line.
+     * Terms are integers or identifiers that were already assigned, so the program always parses.
+     */
+    public String generate(){
+        SplittableRandom random = new SplittableRandom(this.seed);
+        StringBuilder sb = new StringBuilder(this.statements * (this.expressionLength * 6 + 8));
+        for (int i = 0; i < this.statements; i++) {
+            appendIdentifier(sb, i % this.identifiers);
+            sb.append(" = ");
+            int defined = Math.min(i, this.identifiers);
+            for (int term = 0; term < this.expressionLength; term++) {
+                if (term > 0){
+                    sb.append(" + ");
+                }
+                if (defined > 0 && random.nextBoolean()){
+                    appendIdentifier(sb, random.nextInt(defined));
+                }
+                else{
+                    sb.append(random.nextInt(1000));
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * identifiers are a letter followed by the index, e.g. v0, v1, ...
+     */
+    private static void appendIdentifier(StringBuilder sb, int index){
+        sb.append('v').append(index);
+    }
+
+    @Override
+    public String toString() {
+        return "ProgramGenerator{" +
+                "statements=" + statements +
+                ", expressionLength=" + expressionLength +
+                ", identifiers=" + identifiers +
+                ", seed=" + seed +
+                '}';
+    }
+}
@@ -0,0 +1,48 @@
+package simple.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The generated program shared by all benchmarks, as bytes in memory and as a file for Parser(String).
+ */
+@State(Scope.Benchmark)
+public class ProgramState {
+
+    @Param({"10000", "1000000"})
+    public int statements;
+
+    @Param({"4"})
+    public int expressionLength;
+
+    @Param({"100"})
+    public int identifiers;
+
+    @Param({"42"})
+    public long seed;
+
+    public byte[] source;
+    public Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String program = new ProgramGenerator(this.statements, this.expressionLength, this.identifiers, this.seed).generate();
+        this.source = program.getBytes(StandardCharsets.UTF_8);
+        this.file = Files.createTempFile("simple-bench", ".txt");
+        Files.write(this.file, this.source);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+}
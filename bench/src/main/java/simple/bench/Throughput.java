@@ -0,0 +1,26 @@
+package simple.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Work done by a benchmark, JMH reports each public field as a rate per second next to ops/s.
+ */
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+@State(Scope.Thread)
+public class Throughput {
+
+    public long bytes;
+    public long tokens;
+    public long instructions;
+
+    @Setup(Level.Iteration)
+    public void reset(){
+        this.bytes = 0;
+        this.tokens = 0;
+        this.instructions = 0;
+    }
+}
@@ -0,0 +1,155 @@
+package simple;
+
+import java.util.Arrays;
+
+/**
+ * The syntax tree of a program, flat in primitive arrays instead of a node object each.
+ * Nodes are stored in preorder, a node is its kind, an operand and its number of children:
+ * - ASSIGN: a statement, the operand is the memory slot assigned, its children are the terms added up
+ * - ID: a term read from memory, the operand is its slot
+ * - INT: a constant term, the operand is its value
+ * The children of the ASSIGN node at n are the nodes n + 1 .. n + children(n), terms have no children.
+ * Built by the Parser and read by any backend, e.g. generate for the ByteCodeInterpreter.
+ */
+public class Ast {
+
+    public static final byte ASSIGN = 0;
+    public static final byte ID = 1;
+    public static final byte INT = 2;
+    private static final String[] KINDS = {"ASSIGN", "ID", "INT"};
+
+    private byte[] kinds;
+    private int[] operands;
+    private int[] children;
+    private int size;
+    private int statements;
+    private int generated;      // nodes already passed to generate by generateNew
+
+    public Ast(){
+        this.kinds = new byte[64];
+        this.operands = new int[64];
+        this.children = new int[64];
+    }
+
+    /**
+     * Start a statement assigning slot, its terms are added with addTerm.
+     * @return index of the ASSIGN node
+     */
+    public int addAssign(int slot){
+        this.statements++;
+        return this.add(ASSIGN, slot);
+    }
+
+    /**
+     * Change the slot a statement assigns, e.g. once its identifier is known.
+     */
+    public void setOperand(int node, int operand){
+        this.operands[node] = operand;
+    }
+
+    /**
+     * Add an ID or INT term to the statement at assign, which must be the last statement.
+     */
+    public void addTerm(int assign, byte kind, int operand){
+        this.add(kind, operand);
+        this.children[assign]++;
+    }
+
+    private int add(byte kind, int operand){
+        if (this.size == this.kinds.length){
+            int capacity = this.size * 2;
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.operands = Arrays.copyOf(this.operands, capacity);
+            this.children = Arrays.copyOf(this.children, capacity);
+        }
+        this.kinds[this.size] = kind;
+        this.operands[this.size] = operand;
+        this.children[this.size] = 0;
+        return this.size++;
+    }
+
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * number of ASSIGN nodes
+     */
+    public int statements(){
+        return this.statements;
+    }
+
+    public int kind(int node){
+        return this.kinds[node];
+    }
+
+    public int operand(int node){
+        return this.operands[node];
+    }
+
+    public int children(int node){
+        return this.children[node];
+    }
+
+    /**
+     * the node after node and its children, e.g. the next statement
+     */
+    public int next(int node){
+        return node + 1 + this.children[node];
+    }
+
+    /**
+     * Remove every node, keeping the allocated arrays for reuse.
+     */
+    public void clear(){
+        this.size = 0;
+        this.statements = 0;
+        this.generated = 0;
+    }
+
+    /**
+     * Generate the bytecode of every statement: LOAD or LOADI for each term, then STORE.
+     */
+    public void generate(ByteCodeInterpreter interpreter){
+        this.generate(interpreter, 0, this.size);
+    }
+
+    /**
+     * Generate the statements added since the last call, so bytecode can follow the tree while it is built.
+     */
+    void generateNew(ByteCodeInterpreter interpreter){
+        this.generate(interpreter, this.generated, this.size);
+        this.generated = this.size;
+    }
+
+    private void generate(ByteCodeInterpreter interpreter, int from, int to){
+        for (int node = from; node < to; node = this.next(node)) {
+            for (int term = node + 1; term < this.next(node); term++) {
+                interpreter.generate(this.kinds[term] == ID ? ByteCodeInterpreter.LOAD : ByteCodeInterpreter.LOADI, this.operands[term]);
+            }
+            interpreter.generate(ByteCodeInterpreter.STORE, this.operands[node]);
+        }
+    }
+
+    /**
+     * print each node with its operand, e.g. [ASSIGN 0 [INT 77], ASSIGN 1 [ID 0, INT 5]]
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int node = 0; node < this.size; node = this.next(node)) {
+            if (node > 0){
+                sb.append(", ");
+            }
+            sb.append(KINDS[this.kinds[node]]).append(' ').append(this.operands[node]).append(" [");
+            for (int term = node + 1; term < this.next(node); term++) {
+                if (term > node + 1){
+                    sb.append(", ");
+                }
+                sb.append(KINDS[this.kinds[term]]).append(' ').append(this.operands[term]);
+            }
+            sb.append(']');
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,180 @@
+package simple;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many programs given as source text and returns a Result for each, nothing is printed.
+ * - each program runs in a task of its own, on a virtual thread when the JVM has them (Java 21+)
+ *   and on a fixed pool of platform threads otherwise
+ * - a task borrows a quiet Parser from a pool of engines and resets it, so tokens, IdTable,
+ *   bytecode and memory arrays are reused instead of allocated for every program
+ * The number of engines bounds how many programs run at the same time.
+ */
+public class BatchRunner implements AutoCloseable {
+
+    private final ArrayBlockingQueue<Parser> engines;
+    private final ExecutorService executor;
+    private long programs = 0;
+    private long nanos = 0;
+
+    /**
+     * The outcome of one program.
+     */
+    public static final class Result {
+        private final String error;
+        private final String[] ids;
+        private final int[] memory;
+
+        private Result(String error, String[] ids, int[] memory){
+            this.error = error;
+            this.ids = ids;
+            this.memory = memory;
+        }
+
+        public boolean isValid(){
+            return this.error == null;
+        }
+
+        /**
+         * the error the program stopped at, e.g. "Error: Identifier not defined, Line 2", or null if it is valid
+         */
+        public String getError(){
+            return this.error;
+        }
+
+        /**
+         * the final memory, by address, empty if the program is invalid
+         */
+        public int[] getMemory(){
+            return this.memory.clone();
+        }
+
+        /**
+         * the id at each address
+         */
+        public String[] getIds(){
+            return this.ids.clone();
+        }
+
+        /**
+         * final value of an id, null if the program did not assign it
+         */
+        public Integer getValue(String id){
+            for (int address = 0; address < this.memory.length; address++) {
+                if (this.ids[address].equals(id)){
+                    return this.memory[address];
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return this.isValid() ? "Result{memory=" + Arrays.toString(this.memory) + '}' : "Result{error=" + this.error + '}';
+        }
+    }
+
+    /**
+     * @param engines number of Parsers to reuse, at most this many programs run at once
+     */
+    public BatchRunner(int engines){
+        if (engines < 1){
+            throw new IllegalArgumentException("engines must be positive");
+        }
+        this.engines = new ArrayBlockingQueue<>(engines);
+        for (int i = 0; i < engines; i++) {
+            Parser parser = new Parser();
+            parser.setQuiet(true);
+            this.engines.add(parser);
+        }
+        ExecutorService executor = newVirtualThreadExecutor();
+        this.executor = executor != null ? executor : Executors.newFixedThreadPool(engines);
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor, looked up at run time so the project still builds for Java 17
+     * @return null if the JVM has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor(){
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Run every program, each on fresh memory.
+     * @return a Result for each source, in the same order
+     */
+    public List<Result> run(List<String> sources) throws InterruptedException {
+        long start = System.nanoTime();
+        ArrayList<Future<Result>> futures = new ArrayList<>(sources.size());
+        for (String source : sources) {
+            futures.add(this.executor.submit(() -> this.runOne(source)));
+        }
+        ArrayList<Result> results = new ArrayList<>(sources.size());
+        for (Future<Result> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        synchronized (this) {
+            this.programs += sources.size();
+            this.nanos += System.nanoTime() - start;
+        }
+        return results;
+    }
+
+    /**
+     * run a single program on a borrowed engine
+     */
+    private Result runOne(String source) throws InterruptedException {
+        Parser parser = this.engines.take();
+        try {
+            parser.reset(source);
+            if (!parser.compile()){
+                return new Result(parser.getError(), new String[0], new int[0]);
+            }
+            parser.interpreter.run();
+            IdTable idTable = parser.getIdTable();
+            String[] ids = new String[idTable.size()];
+            for (int address = 0; address < ids.length; address++) {
+                ids[address] = idTable.name(address);
+            }
+            return new Result(null, ids, parser.interpreter.copyMemory());
+        } finally {
+            this.engines.put(parser);
+        }
+    }
+
+    /**
+     * programs run so far
+     */
+    public synchronized long getPrograms(){
+        return this.programs;
+    }
+
+    /**
+     * programs per second over all calls to run so far
+     */
+    public synchronized double getThroughput(){
+        return this.nanos == 0 ? 0 : this.programs * 1e9 / this.nanos;
+    }
+
+    @Override
+    public void close(){
+        this.executor.shutdown();
+    }
+}
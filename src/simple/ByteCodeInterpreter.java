@@ -0,0 +1,795 @@
+package simple;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * For this project, you’ll create a class “ByteCodeInterpreter”.
+ * You’ll also modify the Parser class extensively for this project
+ * (it will call the “generate” method of ByteCodeInterpreter).
+ * Your program, including the classes from the Lexer-Parser,
+ * and each class should provide appropriate toString and equals methods.
+ */
+
+public class ByteCodeInterpreter {
+
+    int[] bytecode;     // opcode and operands of each instruction, only the first codeSize entries are used
+    int codeSize;
+    IntBuffer mappedCode;   // the bytecode still in a file mapped by ProgramCache instead of bytecode, null once it is copied
+    private volatile int[] memory;      // volatile so read on another thread sees the array once memory grows
+    private OffHeapMemory offHeap;      // memory outside the heap instead of the array, null if it is not used
+    public static final int LOAD = 0;
+    public static final int LOADI = 1;
+    public static final int STORE = 2;
+    // superinstructions, see fuse()
+    public static final int STOREI = 3;     // STOREI k a: memory[a] = accumulator + k
+    public static final int COPY = 4;       // COPY a b: memory[b] = accumulator + memory[a]
+    public static final int ADDI = 5;       // ADDI a k: memory[a] = accumulator + memory[a] + k
+    public static final int LOADN = 6;      // LOADN n a1 .. an: accumulator += memory[a1] + .. + memory[an]
+    private int accumulator;    // temporary storage, CPU register.
+    private int memorySize;
+    private boolean halted = false;     // an address was out of range
+    private int haltPc = -1;            // pc of the STORE out of range the last run stopped at, -1 if it ran to the end
+    private int compileThreshold = -1;  // interpreted runs before compiling, -1 never compiles
+    private int runs = 0;
+    private JitCompiler.Program compiled;   // compiled bytecode, dropped when the bytecode changes
+    private boolean compileFailed = false;  // the bytecode is too large for the JitCompiler, cleared when it changes
+    int compiles = 0;                       // times the bytecode was given to the JitCompiler
+    private ParallelExecutor.Plan plan;     // statement dependencies for runParallel, dropped when the bytecode changes
+    private int[] opcodeCounts;             // instructions of each opcode in the bytecode for Metrics, dropped when the bytecode changes
+    private boolean concurrentReads = false;    // runs take the write lock, see setConcurrentReads
+    private final StampedLock lock = new StampedLock();
+    static final int CHUNK = 1 << 14;           // code entries interpreted per write lock
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    public ByteCodeInterpreter(int size){
+        this.memorySize = size;
+        this.bytecode = new int[64];
+        this.codeSize = 0;
+        this.accumulator = 0;
+        // memory slots start at 0
+        this.memory = new int[this.memorySize];
+    }
+
+    /**
+     * An interpreter whose memory is off the Java heap, e.g. for tens of millions of identifiers, see OffHeapMemory.
+     * Memory grows to size slots, slots of a reopened file keep their values.
+     * Bytecode is always interpreted: setCompileThreshold and runParallel work on heap memory and are ignored.
+     */
+    public ByteCodeInterpreter(int size, OffHeapMemory memory){
+        this(0);
+        this.offHeap = memory;
+        this.ensureMemory(size);
+    }
+
+    /**
+     * Grow memory to at least size slots, new slots start at 0. Capacity doubles, so growing one slot at a time is cheap.
+     * Compiled code and plans check stores against the old size, so they are dropped.
+     */
+    public void ensureMemory(int size){
+        if (size <= this.memorySize){
+            return;
+        }
+        long stamp = this.writeLock();
+        try {
+            if (this.offHeap != null){
+                this.offHeap.ensureCapacity(size);
+            }
+            else if (size > this.memory.length){
+                this.memory = Arrays.copyOf(this.memory, Math.max(size, this.memory.length * 2));
+            }
+            this.memorySize = size;
+        } finally {
+            this.unlockWrite(stamp);
+        }
+        this.codeChanged();
+    }
+
+    /**
+     * Drop the bytecode and memory so the interpreter can take another program, keeping the allocated arrays.
+     * The compile threshold is kept.
+     */
+    public void reset(){
+        long stamp = this.writeLock();
+        try {
+            if (this.offHeap != null){
+                this.offHeap.clear(0, this.memorySize);
+            }
+            else{
+                Arrays.fill(this.memory, 0, this.memorySize, 0);
+            }
+            this.memorySize = 0;
+        } finally {
+            this.unlockWrite(stamp);
+        }
+        this.codeSize = 0;
+        this.mappedCode = null;
+        this.accumulator = 0;
+        this.halted = false;
+        this.codeChanged();
+    }
+
+    /**
+     * takes in a command and an operand as parameters and adds the command to the bytecode being generated.
+     */
+    public void generate(int command, int operand){
+        this.code();    // mapped code is copied before it changes
+        if (this.codeSize + 2 > this.bytecode.length){
+            // the Optimizer may have left an array of exactly the code size, possibly empty
+            this.bytecode = Arrays.copyOf(this.bytecode, Math.max(this.codeSize + 2, this.bytecode.length * 2));
+        }
+        this.bytecode[this.codeSize] = command;
+        this.bytecode[this.codeSize + 1] = operand;
+        this.codeSize += 2;
+        this.codeChanged();
+    }
+
+    /**
+     * Compile the bytecode to a JVM class once it has been run threshold times, see JitCompiler.
+     * Later runs call the compiled code, with the same results as interpreting it.
+     * @param threshold interpreted runs before compiling, 0 compiles on the first run and -1 never compiles
+     */
+    public void setCompileThreshold(int threshold){
+        this.compileThreshold = threshold;
+        this.runs = 0;
+    }
+
+    /**
+     * true if run() currently calls compiled code
+     */
+    public boolean isCompiled(){
+        return this.compiled != null;
+    }
+
+    /**
+     * true once a run stopped at an address out of range, runAndClear then runs nothing until reset
+     */
+    public boolean isHalted(){
+        return this.halted;
+    }
+
+    /**
+     * compiled code and run counts are only valid for the bytecode they were made for
+     */
+    private void codeChanged(){
+        this.compiled = null;
+        this.compileFailed = false;
+        this.plan = null;
+        this.opcodeCounts = null;
+        this.runs = 0;
+    }
+
+    /**
+     * runs the code in bytecode, modifying memory
+     */
+    public void run(){
+        Metrics.ExecuteEvent event = Metrics.beginExecute();
+        this.haltPc = -1;
+        this.execute();
+        this.executed(event, 1);
+    }
+
+    /**
+     * run with the compiled code if there is or should be some, else interpret
+     */
+    private void execute(){
+        if (this.offHeap == null && this.compiled == null && !this.compileFailed
+                && this.compileThreshold >= 0 && this.runs++ >= this.compileThreshold){
+            this.compiles++;
+            this.compiled = JitCompiler.compile(this.code(), this.codeSize, this.memorySize);
+            // too large to compile, interpret it without translating it again on every run
+            this.compileFailed = this.compiled == null;
+        }
+        if (this.compiled != null){
+            // compiled code runs in one go, a snapshot waits for all of it
+            long stamp = this.writeLock();
+            try {
+                int accumulator = this.compiled.run(this.memory, this.accumulator);
+                if (this.compiled.halts()){
+                    this.outOfRange(this.compiled.haltPc(), accumulator);
+                }
+                else{
+                    this.accumulator = accumulator;
+                }
+            } finally {
+                this.unlockWrite(stamp);
+            }
+            return;
+        }
+        this.interpretFrom(0, this.accumulator);
+    }
+
+    /**
+     * Interpret the bytecode from pc on. While concurrentReads it runs a CHUNK at a time,
+     * each under the write lock, so a snapshot sees memory between two chunks and waits for one chunk at most.
+     */
+    private void interpretFrom(int pc, int accumulator){
+        if (!this.concurrentReads){
+            this.interpret(pc, this.codeSize, accumulator);
+            return;
+        }
+        this.accumulator = accumulator;
+        while (pc < this.codeSize) {
+            long stamp = this.lock.writeLock();
+            try {
+                pc = this.interpret(pc, Math.min(pc + CHUNK, this.codeSize), this.accumulator);
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * interpret from pc until end with memory on or off the heap
+     * @return where it stopped, codeSize if a store was out of range
+     */
+    private int interpret(int pc, int end, int accumulator){
+        if (this.offHeap != null){
+            this.code();
+            return this.interpretOffHeap(pc, end, accumulator);
+        }
+        return this.mappedCode != null ? this.interpretMapped(pc, end, accumulator) : this.interpretArray(pc, end, accumulator);
+    }
+
+    /**
+     * Let other threads take snapshots of memory while the program runs, see snapshot. Off by default,
+     * a run then takes a write lock for every CHUNK of code it interprets, and for the whole of compiled or parallel code.
+     * Memory only changes on the thread running the interpreter, read and snapshot can be called from any thread.
+     */
+    public void setConcurrentReads(boolean concurrentReads){
+        this.concurrentReads = concurrentReads;
+    }
+
+    private long writeLock(){
+        return this.concurrentReads ? this.lock.writeLock() : 0;
+    }
+
+    private void unlockWrite(long stamp){
+        if (stamp != 0){
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * A consistent copy of memory, safe while the program runs on another thread with setConcurrentReads:
+     * memory as it was between two chunks of the run, never part of one and part of the next.
+     * The copy is made optimistically and only made again under the read lock if a chunk ran meanwhile.
+     */
+    public int[] snapshot(){
+        long stamp = this.lock.tryOptimisticRead();
+        if (stamp != 0){
+            try {
+                int[] values = this.copyMemory();
+                if (this.lock.validate(stamp)){
+                    return values;
+                }
+            } catch (IndexOutOfBoundsException e) {
+                // memory grew while it was copied
+            }
+        }
+        stamp = this.lock.readLock();
+        try {
+            return this.copyMemory();
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * The value at address without any lock, safe while the program runs on another thread.
+     * It is the last value stored there that this thread can see, two reads may see different points of the run.
+     */
+    public int read(int address){
+        if (this.offHeap != null){
+            return this.offHeap.read(address);
+        }
+        return (int) SLOTS.getOpaque(this.memory, address);
+    }
+
+    /**
+     * Like run, but independent statements run concurrently on pool, see ParallelExecutor.
+     * The final memory is the same as run, code from a store out of range on is interpreted as usual.
+     */
+    public void runParallel(ForkJoinPool pool){
+        Metrics.ExecuteEvent event = Metrics.beginExecute();
+        this.haltPc = -1;
+        if (this.offHeap != null){
+            this.interpretFrom(0, this.accumulator);
+            this.executed(event, 1);
+            return;
+        }
+        if (this.plan == null){
+            this.plan = ParallelExecutor.plan(this.code(), this.codeSize, this.memorySize, ParallelExecutor.GRAIN);
+        }
+        int accumulator;
+        long stamp = this.writeLock();
+        try {
+            accumulator = this.plan.run(pool, this.memory, this.accumulator);
+        } finally {
+            this.unlockWrite(stamp);
+        }
+        this.interpretFrom(this.plan.end(), accumulator);
+        this.executed(event, 1);
+    }
+
+    /**
+     * Run the bytecode on lanes instances of memory at once, see ColumnarExecutor.
+     * columns[slot][lane] holds the memory of each instance and is updated in place, the interpreter's own memory is not used.
+     * Every lane starts with the current accumulator. Code from a store out of range on is not run, like run() stopping there.
+     * Bytecode from the Optimizer assumes memory starts at 0, so only run it on zeroed columns.
+     */
+    public void runColumns(int[][] columns, int lanes){
+        Metrics.ExecuteEvent event = Metrics.beginExecute();
+        int end = ColumnarExecutor.run(this.code(), this.codeSize, this.memorySize, columns, lanes, this.accumulator);
+        this.haltPc = -1;
+        if (end < this.codeSize){
+            // halted like run(), the lanes have their own accumulators so the interpreter's is kept
+            this.outOfRange(end, this.accumulator);
+        }
+        this.executed(event, lanes);
+    }
+
+    /**
+     * end a run started while Metrics were enabled
+     */
+    private void executed(Metrics.ExecuteEvent event, int instances){
+        if (event == null){
+            return;
+        }
+        if (this.haltPc >= 0){
+            // only the instructions before the STORE out of range ran
+            Metrics.executed(event, Metrics.countOpcodes(this.code(), this.haltPc), this.memorySize, instances);
+            return;
+        }
+        if (this.opcodeCounts == null){
+            this.opcodeCounts = Metrics.countOpcodes(this.code(), this.codeSize);
+        }
+        Metrics.executed(event, this.opcodeCounts, this.memorySize, instances);
+    }
+
+    /**
+     * interpret the bytecode from pc until end, with memory in the array
+     */
+    private int interpretArray(int pc, int end, int accumulator){
+        // work on locals so the loop only touches the two arrays and a register
+        int[] code = this.bytecode;
+        int[] memory = this.memory;
+        while (pc < end) {
+            int address;
+            switch (code[pc]){
+                case LOAD:
+                    // get value from memory address, add it to Accumulator.
+                    accumulator += memory[code[pc + 1]];
+                    pc += 2;
+                    break;
+                case LOADI:
+                    // add value of operand to Accumulator
+                    accumulator += code[pc + 1];
+                    pc += 2;
+                    break;
+                case STORE:
+                    address = code[pc + 1];
+                    // Check size limitation, stop adding to bytecode.
+                    if (address >= this.memorySize){
+                        this.outOfRange(pc, accumulator);
+                        return this.codeSize;
+                    }
+                    // Store value in Accumulator to address of operand, set Accumulator to 0
+                    memory[address] = accumulator;
+                    accumulator = 0;
+                    pc += 2;
+                    break;
+                case STOREI:
+                    accumulator += code[pc + 1];
+                    address = code[pc + 2];
+                    if (address >= this.memorySize){
+                        this.outOfRange(pc, accumulator);
+                        return this.codeSize;
+                    }
+                    memory[address] = accumulator;
+                    accumulator = 0;
+                    pc += 3;
+                    break;
+                case COPY:
+                    accumulator += memory[code[pc + 1]];
+                    address = code[pc + 2];
+                    if (address >= this.memorySize){
+                        this.outOfRange(pc, accumulator);
+                        return this.codeSize;
+                    }
+                    memory[address] = accumulator;
+                    accumulator = 0;
+                    pc += 3;
+                    break;
+                case ADDI:
+                    address = code[pc + 1];
+                    // checked before the load, the address may be past the end of the array
+                    if (address >= this.memorySize){
+                        this.outOfRange(pc, accumulator + code[pc + 2]);
+                        return this.codeSize;
+                    }
+                    accumulator += memory[address] + code[pc + 2];
+                    memory[address] = accumulator;
+                    accumulator = 0;
+                    pc += 3;
+                    break;
+                case LOADN:
+                    int last = pc + 2 + code[pc + 1];
+                    for (int i = pc + 2; i < last; i++) {
+                        accumulator += memory[code[i]];
+                    }
+                    pc = last;
+                    break;
+                default:
+                    pc += 2;
+                    break;
+            }
+        }
+        this.accumulator = accumulator;
+        return pc;
+    }
+
+    /**
+     * interpret like interpretArray, with the code in mappedCode
+     */
+    private int interpretMapped(int pc, int end, int accumulator){
+        IntBuffer code = this.mappedCode;
+        int[] memory = this.memory;
+        while (pc < end) {
+            int address;
+            switch (code.get(pc)){
+                case LOAD:
+                    accumulator += memory[code.get(pc + 1)];
+                    pc += 2;
+                    break;
+                case LOADI:
+                    accumulator += code.get(pc + 1);
+                    pc += 2;
+                    break;
+                case STORE:
+                    address = code.get(pc + 1);
+                    if (address >= this.memorySize){
+                        this.outOfRange(pc, accumulator);
+                        return this.codeSize;
+                    }
+                    memory[address] = accumulator;
+                    accumulator = 0;
+                    pc += 2;
+                    break;
+                case STOREI:
+                    accumulator += code.get(pc + 1);
+                    address = code.get(pc + 2);
+                    if (address >= this.memorySize){
+                        this.outOfRange(pc, accumulator);
+                        return this.codeSize;
+                    }
+                    memory[address] = accumulator;
+                    accumulator = 0;
+                    pc += 3;
+                    break;
+                case COPY:
+                    accumulator += memory[code.get(pc + 1)];
+                    address = code.get(pc + 2);
+                    if (address >= this.memorySize){
+                        this.outOfRange(pc, accumulator);
+                        return this.codeSize;
+                    }
+                    memory[address] = accumulator;
+                    accumulator = 0;
+                    pc += 3;
+                    break;
+                case ADDI:
+                    address = code.get(pc + 1);
+                    // checked before the load, the address may be past the end of the array
+                    if (address >= this.memorySize){
+                        this.outOfRange(pc, accumulator + code.get(pc + 2));
+                        return this.codeSize;
+                    }
+                    accumulator += memory[address] + code.get(pc + 2);
+                    memory[address] = accumulator;
+                    accumulator = 0;
+                    pc += 3;
+                    break;
+                case LOADN:
+                    int last = pc + 2 + code.get(pc + 1);
+                    for (int i = pc + 2; i < last; i++) {
+                        accumulator += memory[code.get(i)];
+                    }
+                    pc = last;
+                    break;
+                default:
+                    pc += 2;
+                    break;
+            }
+        }
+        this.accumulator = accumulator;
+        return pc;
+    }
+
+    /**
+     * interpret like interpretArray, with memory in offHeap
+     */
+    private int interpretOffHeap(int pc, int end, int accumulator){
+        int[] code = this.bytecode;
+        IntBuffer memory = this.offHeap.slots();
+        while (pc < end) {
+            int address;
+            switch (code[pc]){
+                case LOAD:
+                    accumulator += memory.get(code[pc + 1]);
+                    pc += 2;
+                    break;
+                case LOADI:
+                    accumulator += code[pc + 1];
+                    pc += 2;
+                    break;
+                case STORE:
+                    address = code[pc + 1];
+                    if (address >= this.memorySize){
+                        this.outOfRange(pc, accumulator);
+                        return this.codeSize;
+                    }
+                    memory.put(address, accumulator);
+                    accumulator = 0;
+                    pc += 2;
+                    break;
+                case STOREI:
+                    accumulator += code[pc + 1];
+                    address = code[pc + 2];
+                    if (address >= this.memorySize){
+                        this.outOfRange(pc, accumulator);
+                        return this.codeSize;
+                    }
+                    memory.put(address, accumulator);
+                    accumulator = 0;
+                    pc += 3;
+                    break;
+                case COPY:
+                    accumulator += memory.get(code[pc + 1]);
+                    address = code[pc + 2];
+                    if (address >= this.memorySize){
+                        this.outOfRange(pc, accumulator);
+                        return this.codeSize;
+                    }
+                    memory.put(address, accumulator);
+                    accumulator = 0;
+                    pc += 3;
+                    break;
+                case ADDI:
+                    address = code[pc + 1];
+                    if (address >= this.memorySize){
+                        // slots past the memory size read as 0, like in the array
+                        this.outOfRange(pc, accumulator + code[pc + 2]);
+                        return this.codeSize;
+                    }
+                    accumulator += memory.get(address) + code[pc + 2];
+                    memory.put(address, accumulator);
+                    accumulator = 0;
+                    pc += 3;
+                    break;
+                case LOADN:
+                    int last = pc + 2 + code[pc + 1];
+                    for (int i = pc + 2; i < last; i++) {
+                        accumulator += memory.get(code[i]);
+                    }
+                    pc = last;
+                    break;
+                default:
+                    pc += 2;
+                    break;
+            }
+        }
+        this.accumulator = accumulator;
+        return pc;
+    }
+
+    /**
+     * stop running like a STORE outside of memory does
+     * @param pc the STORE out of range
+     */
+    private void outOfRange(int pc, int accumulator){
+        System.out.println("Error: Address out of range");
+        Metrics.error("Address out of range");
+        this.halted = true;
+        this.haltPc = pc;
+        this.accumulator = accumulator;
+    }
+
+    /**
+     * Rewrite the bytecode with superinstructions for the most common sequences, so a statement takes fewer dispatches:
+     * - LOADI k; STORE a          -> STOREI k a
+     * - LOAD a; STORE b           -> COPY a b
+     * - LOAD a; LOADI k; STORE a  -> ADDI a k, also with LOADI first
+     * - two or more LOADs in a row -> LOADN n a1 .. an
+     * Expects code without superinstructions, e.g. straight from the Parser or the Optimizer.
+     */
+    public void fuse(){
+        int[] code = this.code();
+        int size = this.codeSize;
+        int[] fused = new int[size];    // never longer than the original
+        int k = 0;
+        int pc = 0;
+        while (pc < size) {
+            int op = code[pc];
+            int next = pc + 2 < size ? code[pc + 2] : -1;
+            int third = pc + 4 < size ? code[pc + 4] : -1;
+            if (third == STORE && ((op == LOAD && next == LOADI && code[pc + 1] == code[pc + 5])
+                    || (op == LOADI && next == LOAD && code[pc + 3] == code[pc + 5]))){
+                fused[k++] = ADDI;
+                fused[k++] = code[pc + 5];
+                fused[k++] = op == LOADI ? code[pc + 1] : code[pc + 3];
+                pc += 6;
+            }
+            else if (op == LOADI && next == STORE){
+                fused[k++] = STOREI;
+                fused[k++] = code[pc + 1];
+                fused[k++] = code[pc + 3];
+                pc += 4;
+            }
+            else if (op == LOAD && next == STORE){
+                fused[k++] = COPY;
+                fused[k++] = code[pc + 1];
+                fused[k++] = code[pc + 3];
+                pc += 4;
+            }
+            else if (op == LOAD && next == LOAD){
+                int count = k + 1;
+                fused[k] = LOADN;
+                k += 2;
+                while (pc < size && code[pc] == LOAD){
+                    fused[k++] = code[pc + 1];
+                    pc += 2;
+                }
+                fused[count] = k - count - 1;
+            }
+            else{
+                fused[k++] = op;
+                fused[k++] = code[pc + 1];
+                pc += 2;
+            }
+        }
+        this.bytecode = fused;
+        this.codeSize = k;
+        this.codeChanged();
+    }
+
+    /**
+     * number of ints taken by the instruction at pc, 2 for LOAD, LOADI and STORE
+     */
+    public static int width(int[] code, int pc){
+        switch (code[pc]){
+            case STOREI:
+            case COPY:
+            case ADDI:
+                return 3;
+            case LOADN:
+                return 2 + code[pc + 1];
+            default:
+                return 2;
+        }
+    }
+
+    /**
+     * runs the bytecode generated since the last call and drops it, so a streaming Parser
+     * can execute each statement as soon as it is complete without keeping the whole program.
+     * Nothing runs anymore once an address was out of range, like run() stopping there.
+     */
+    public void runAndClear(){
+        if (!this.halted){
+            this.run();
+        }
+        this.clearByteCode();
+    }
+
+    /**
+     * drop the bytecode without running it, e.g. once a Pipeline has handed it to another interpreter
+     */
+    void clearByteCode(){
+        this.codeSize = 0;
+        this.mappedCode = null;
+        this.codeChanged();
+    }
+
+    /**
+     * replaces the bytecode, e.g. with the output of the Optimizer
+     * @param code opcodes and their operands, the first size entries are used
+     */
+    void setByteCode(int[] code, int size){
+        this.bytecode = code;
+        this.codeSize = size;
+        this.mappedCode = null;
+        this.codeChanged();
+    }
+
+    /**
+     * Run code in place, e.g. from a file mapped by ProgramCache, instead of copying it to the heap.
+     * It is only copied into an array once something needs one: generate, fuse, compiling, runParallel,
+     * runColumns, off heap memory, Metrics or getByteCode.
+     * @param code the opcodes and operands, from 0 to its limit
+     */
+    void setByteCode(IntBuffer code){
+        this.mappedCode = code;
+        this.codeSize = code.limit();
+        this.codeChanged();
+    }
+
+    /**
+     * the bytecode as an array, copying mapped code into one the first time
+     */
+    int[] code(){
+        if (this.mappedCode != null){
+            this.bytecode = new int[Math.max(this.codeSize, 64)];
+            this.mappedCode.get(0, this.bytecode, 0, this.codeSize);
+            this.mappedCode = null;
+        }
+        return this.bytecode;
+    }
+
+    /**
+     * - get methods providing public access to appropriate data members.
+     * getByteCode and getMemory return copies, boxed for compatibility with the old ArrayList members.
+     */
+    public ArrayList<Integer> getByteCode(){
+        return toList(this.code(), this.codeSize);
+    }
+
+    public ArrayList<Integer> getMemory(){
+        return toList(this.copyMemory(), this.memorySize);
+    }
+
+    /**
+     * memory without boxing, for callers that keep many results
+     */
+    int[] copyMemory(){
+        if (this.offHeap != null){
+            int[] values = new int[this.memorySize];
+            this.offHeap.slots().get(0, values);
+            return values;
+        }
+        return Arrays.copyOf(this.memory, this.memorySize);
+    }
+
+    public int getMemorySize(){
+        return this.memorySize;
+    }
+
+    /**
+     * ints of bytecode, the size of getByteCode without copying it
+     */
+    public int getCodeSize(){
+        return this.codeSize;
+    }
+
+    /**
+     * bytecode without boxing, like copyMemory
+     */
+    public int[] copyByteCode(){
+        return Arrays.copyOf(this.code(), this.codeSize);
+    }
+
+    private static ArrayList<Integer> toList(int[] values, int size){
+        ArrayList<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(values[i]);
+        }
+        return list;
+    }
+
+    /**
+     * each class should provide appropriate toString and equals methods.
+     */
+    @Override
+    public String toString() {
+        return "ByteCodeInterpreter{" +
+                "bytecode=" + this.getByteCode() +
+                ", memory=" + this.getMemory() +
+                ", accumulator=" + accumulator +
+                ", memorySize=" + memorySize +
+                '}';
+    }
+}
@@ -0,0 +1,370 @@
+package simple;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The scanner of every Lexer: scans tokens straight from the bytes of the input, with the same tokens as
+ * decoding the input and scanning the chars.
+ * - for charsets where every ASCII byte is the char it encodes (UTF-8, US-ASCII and ISO-8859-1), each ASCII byte
+ *   is classified with one lookup in a 256 entry table, identifiers and integers are scanned in a tight loop
+ *   over the byte array and copied into the TokenBuffer at once
+ * - a run of non-ASCII bytes is decoded with the charset into a few pending chars, which are scanned
+ *   before the next byte, so only programs with non-ASCII text take the slow path
+ * - with any other charset every byte is decoded, and text that is already chars is scanned as pending chars
+ * The input is either a whole array, a window over a channel that is refilled as it is scanned, or chars.
+ * @see Lexer
+ */
+public class ByteScanner {
+
+    // classes of chars, see CLASSES
+    static final byte OTHER = 0;
+    static final byte LETTER = 1;
+    static final byte DIGIT = 2;
+    static final byte SPACE = 3;
+    static final byte ASSIGN = 4;
+    static final byte PLUS = 5;
+    static final byte NON_ASCII = 6;    // a byte of a multi-byte char, or a char the table does not cover
+    /** class of every byte value, indexed by byte & 0xFF */
+    static final byte[] CLASSES = new byte[256];
+
+    static {
+        for (int c = 'a'; c <= 'z'; c++) {
+            CLASSES[c] = LETTER;
+            CLASSES[c - 'a' + 'A'] = LETTER;
+        }
+        for (int c = '0'; c <= '9'; c++) {
+            CLASSES[c] = DIGIT;
+        }
+        CLASSES[' '] = SPACE;
+        CLASSES['\n'] = SPACE;
+        CLASSES['\t'] = SPACE;
+        CLASSES['='] = ASSIGN;
+        CLASSES['+'] = PLUS;
+        for (int b = 0x80; b < 0x100; b++) {
+            CLASSES[b] = NON_ASCII;
+        }
+    }
+
+    private byte[] bytes;           // bytes[position..limit] are not scanned yet
+    private int position;
+    private int limit;
+    private final ReadableByteChannel channel;  // null if bytes holds the whole input
+    private final ByteBuffer window;            // bytes as a buffer for channel reads
+    private boolean endOfInput;
+    private final CharsetDecoder decoder;
+    private final boolean ascii;    // ASCII bytes are scanned as they are, see supports
+    private CharBuffer pending;     // chars decoded from non-ASCII bytes, scanned before bytes[position]
+    private long read = 0;
+
+    /**
+     * scan the whole of bytes
+     */
+    public ByteScanner(byte[] bytes, Charset charset){
+        this.bytes = bytes;
+        this.limit = bytes.length;
+        this.channel = null;
+        this.window = null;
+        this.endOfInput = true;
+        this.read = bytes.length;
+        this.decoder = newDecoder(charset);
+        this.ascii = supports(charset);
+        this.pending = CharBuffer.allocate(16).flip();
+    }
+
+    /**
+     * scan a channel through a window of windowSize bytes, at least the 4 bytes of the longest UTF-8 char.
+     * The channel is closed once its end is reached.
+     */
+    public ByteScanner(ReadableByteChannel channel, Charset charset, int windowSize){
+        this.bytes = new byte[Math.max(windowSize, 4)];
+        this.channel = channel;
+        this.window = ByteBuffer.wrap(this.bytes);
+        this.decoder = newDecoder(charset);
+        this.ascii = supports(charset);
+        this.pending = CharBuffer.allocate(16).flip();
+    }
+
+    /**
+     * scan chars that are already decoded, from the position of chars to its limit.
+     * The position of chars is moved past each token as it is scanned.
+     */
+    public ByteScanner(CharBuffer chars){
+        this.bytes = new byte[0];
+        this.channel = null;
+        this.window = null;
+        this.endOfInput = true;
+        this.read = chars.remaining();
+        this.decoder = null;
+        this.ascii = true;
+        this.pending = chars;
+    }
+
+    private static CharsetDecoder newDecoder(Charset charset){
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * true if the ASCII bytes of input in charset can be scanned without decoding them
+     */
+    public static boolean supports(Charset charset){
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * class of a decoded char, the table for ASCII and Character.isLetter / isDigit for the rest
+     */
+    static byte classify(char c){
+        if (c < 0x80){
+            return CLASSES[c];
+        }
+        return Character.isLetter(c) ? LETTER : Character.isDigit(c) ? DIGIT : OTHER;
+    }
+
+    /**
+     * Scan the next token into out.
+     * @return kind of the token, or TokenBuffer.EOF without appending anything at the end of the input
+     */
+    public int scan(TokenBuffer out){
+        if (this.ascii && !this.pending.hasRemaining()){
+            int kind = this.scanAscii(out);
+            if (kind >= 0){
+                return kind;
+            }
+        }
+        while (true) {
+            int c = this.peek();
+            if (c < 0){
+                return TokenBuffer.EOF;
+            }
+            switch (classify((char) c)){
+                case SPACE:
+                    this.skip();
+                    break;
+                case LETTER:
+                    this.scanWord(out, false);
+                    out.add(TokenBuffer.ID);
+                    return TokenBuffer.ID;
+                case DIGIT:
+                    this.scanWord(out, true);
+                    out.add(TokenBuffer.INT);
+                    return TokenBuffer.INT;
+                case ASSIGN:
+                    this.skip();
+                    out.add(TokenBuffer.ASSMT);
+                    return TokenBuffer.ASSMT;
+                case PLUS:
+                    this.skip();
+                    out.add(TokenBuffer.PLUS);
+                    return TokenBuffer.PLUS;
+                default:
+                    this.skip();
+                    out.appendChar((char) c);
+                    out.add(TokenBuffer.UNKNOWN);
+                    return TokenBuffer.UNKNOWN;
+            }
+        }
+    }
+
+    /**
+     * Scan a token made of ASCII bytes that ends before the end of the window, the common case.
+     * @return kind of the token, or -1 with nothing appended at a non-ASCII byte or the end of the window
+     */
+    private int scanAscii(TokenBuffer out){
+        byte[] bytes = this.bytes;
+        int end = this.limit;
+        int p = this.position;
+        while (p < end) {
+            byte kind = CLASSES[bytes[p] & 0xFF];
+            switch (kind){
+                case SPACE:
+                    p++;
+                    continue;
+                case LETTER:
+                case DIGIT:
+                    int q = p + 1;
+                    while (q < end) {
+                        byte next = CLASSES[bytes[q] & 0xFF];
+                        if (next != DIGIT && (kind == DIGIT || next != LETTER)){
+                            break;
+                        }
+                        q++;
+                    }
+                    if (q == end || bytes[q] < 0){
+                        // may go on after the window or with a non-ASCII letter
+                        this.position = p;
+                        return -1;
+                    }
+                    out.appendAscii(bytes, p, q);
+                    this.position = q;
+                    int token = kind == DIGIT ? TokenBuffer.INT : TokenBuffer.ID;
+                    out.add(token);
+                    return token;
+                case ASSIGN:
+                    this.position = p + 1;
+                    out.add(TokenBuffer.ASSMT);
+                    return TokenBuffer.ASSMT;
+                case PLUS:
+                    this.position = p + 1;
+                    out.add(TokenBuffer.PLUS);
+                    return TokenBuffer.PLUS;
+                case OTHER:
+                    this.position = p + 1;
+                    out.appendChar((char) bytes[p]);
+                    out.add(TokenBuffer.UNKNOWN);
+                    return TokenBuffer.UNKNOWN;
+                default:
+                    this.position = p;
+                    return -1;
+            }
+        }
+        this.position = p;
+        return -1;
+    }
+
+    /**
+     * bytes read from the input so far
+     */
+    public long bytesRead(){
+        return this.read;
+    }
+
+    /**
+     * Append the letters and digits, or only the digits, starting at the next char.
+     */
+    private void scanWord(TokenBuffer out, boolean digitsOnly){
+        while (true) {
+            if (this.ascii && !this.pending.hasRemaining()){
+                // the common case, ASCII straight from the array
+                byte[] bytes = this.bytes;
+                int end = this.limit;
+                int p = this.position;
+                while (p < end) {
+                    byte c = CLASSES[bytes[p] & 0xFF];
+                    if (c != DIGIT && (digitsOnly || c != LETTER)){
+                        break;
+                    }
+                    p++;
+                }
+                out.appendAscii(bytes, this.position, p);
+                this.position = p;
+                if (p < end && bytes[p] >= 0){
+                    return;
+                }
+            }
+            // a non-ASCII char, or the end of the window
+            int c = this.peek();
+            if (c < 0){
+                return;
+            }
+            byte kind = classify((char) c);
+            if (kind != DIGIT && (digitsOnly || kind != LETTER)){
+                return;
+            }
+            out.appendChar((char) c);
+            this.skip();
+        }
+    }
+
+    /**
+     * @return the next char without moving past it, or -1 at the end of the input
+     */
+    private int peek(){
+        while (true) {
+            if (this.pending.hasRemaining()){
+                return this.pending.get(this.pending.position());
+            }
+            if (this.position == this.limit && !this.fill()){
+                return -1;
+            }
+            byte b = this.bytes[this.position];
+            if (b >= 0 && this.ascii){
+                return b;
+            }
+            this.decode();
+        }
+    }
+
+    /**
+     * move past the char returned by peek
+     */
+    private void skip(){
+        if (this.pending.hasRemaining()){
+            this.pending.position(this.pending.position() + 1);
+        }
+        else{
+            this.position++;
+        }
+    }
+
+    /**
+     * Decode the non-ASCII bytes at position into pending, up to the next ASCII byte, or the whole window
+     * if the charset is not ASCII compatible. A char cut by the end of the window is left in bytes until
+     * the window is refilled.
+     */
+    private void decode(){
+        int end = this.position;
+        while (end < this.limit && (this.bytes[end] < 0 || !this.ascii)){
+            end++;
+        }
+        boolean complete = end < this.limit || this.endOfInput;
+        if (this.pending.capacity() < end - this.position){
+            this.pending = CharBuffer.allocate(end - this.position);
+        }
+        ByteBuffer in = ByteBuffer.wrap(this.bytes, this.position, end - this.position);
+        this.pending.clear();
+        this.decoder.decode(in, this.pending, complete);
+        if (complete){
+            this.decoder.flush(this.pending);
+            this.decoder.reset();
+        }
+        this.pending.flip();
+        this.position = in.position();
+        if (!this.pending.hasRemaining() && !complete){
+            // only the start of a char, read the rest
+            this.fill();
+        }
+    }
+
+    /**
+     * Read more of the channel after the bytes not scanned yet.
+     * @return false once every byte has been scanned
+     */
+    private boolean fill(){
+        if (this.channel == null || this.endOfInput){
+            return this.position < this.limit;
+        }
+        System.arraycopy(this.bytes, this.position, this.bytes, 0, this.limit - this.position);
+        this.limit -= this.position;
+        this.position = 0;
+        try {
+            while (this.limit < this.bytes.length){
+                this.window.limit(this.bytes.length).position(this.limit);
+                int count = this.channel.read(this.window);
+                if (count < 0){
+                    this.endOfInput = true;
+                    this.channel.close();
+                    break;
+                }
+                this.limit += count;
+                this.read += count;
+                if (count > 0){
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error: could not read input, " + e.getMessage());
+            this.endOfInput = true;
+        }
+        return this.position < this.limit;
+    }
+}
@@ -0,0 +1,157 @@
+package simple;
+
+import java.util.Arrays;
+
+/**
+ * Runs one program over many instances of its memory at once, e.g. the same program on thousands of different inputs.
+ * Memory is columnar: columns[slot][lane] is the slot of instance lane, and the accumulator has a lane per instance.
+ * Each instruction is dispatched once per batch and applied to every lane in a plain loop over int arrays,
+ * which the JIT unrolls and vectorizes, so there is no dispatch per instance.
+ * An all zero accumulator, as after every store, is only tracked and not written:
+ * the first load of a statement copies a column instead of adding it, and a constant is filled in.
+ * Works on plain and fused code.
+ * @see ByteCodeInterpreter#runColumns
+ */
+public class ColumnarExecutor {
+
+    /**
+     * Run the first size entries of code on every lane of columns, in place.
+     * @param accumulator initial accumulator of every lane
+     * @return the code position it stopped at, size or the store out of range
+     */
+    static int run(int[] code, int size, int memorySize, int[][] columns, int lanes, int accumulator){
+        if (columns.length < memorySize){
+            throw new IllegalArgumentException("need " + memorySize + " columns, got " + columns.length);
+        }
+        for (int[] column : columns) {
+            if (column.length < lanes){
+                throw new IllegalArgumentException("columns must have at least " + lanes + " lanes");
+            }
+        }
+        int[] acc = new int[lanes];
+        Arrays.fill(acc, accumulator);
+        boolean clear = accumulator == 0;   // acc is all 0, its contents are stale
+        int pc = 0;
+        while (pc < size) {
+            int[] column;
+            switch (code[pc]){
+                case ByteCodeInterpreter.LOAD:
+                    clear = add(acc, clear, columns[code[pc + 1]], lanes);
+                    pc += 2;
+                    break;
+                case ByteCodeInterpreter.LOADI:
+                    int k = code[pc + 1];
+                    if (clear){
+                        Arrays.fill(acc, 0, lanes, k);
+                        clear = false;
+                    }
+                    else{
+                        for (int i = 0; i < lanes; i++) {
+                            acc[i] += k;
+                        }
+                    }
+                    pc += 2;
+                    break;
+                case ByteCodeInterpreter.STORE:
+                    if (code[pc + 1] >= memorySize){
+                        return pc;
+                    }
+                    column = columns[code[pc + 1]];
+                    if (clear){
+                        Arrays.fill(column, 0, lanes, 0);
+                    }
+                    else{
+                        System.arraycopy(acc, 0, column, 0, lanes);
+                    }
+                    clear = true;
+                    pc += 2;
+                    break;
+                case ByteCodeInterpreter.STOREI:
+                    if (code[pc + 2] >= memorySize){
+                        return pc;
+                    }
+                    store(acc, clear, code[pc + 1], columns[code[pc + 2]], lanes);
+                    clear = true;
+                    pc += 3;
+                    break;
+                case ByteCodeInterpreter.COPY:
+                    if (code[pc + 2] >= memorySize){
+                        return pc;
+                    }
+                    int[] from = columns[code[pc + 1]];
+                    column = columns[code[pc + 2]];
+                    if (clear){
+                        System.arraycopy(from, 0, column, 0, lanes);
+                    }
+                    else{
+                        for (int i = 0; i < lanes; i++) {
+                            column[i] = acc[i] + from[i];
+                        }
+                    }
+                    clear = true;
+                    pc += 3;
+                    break;
+                case ByteCodeInterpreter.ADDI:
+                    if (code[pc + 1] >= memorySize){
+                        return pc;
+                    }
+                    column = columns[code[pc + 1]];
+                    int constant = code[pc + 2];
+                    if (clear){
+                        for (int i = 0; i < lanes; i++) {
+                            column[i] += constant;
+                        }
+                    }
+                    else{
+                        for (int i = 0; i < lanes; i++) {
+                            column[i] += acc[i] + constant;
+                        }
+                    }
+                    clear = true;
+                    pc += 3;
+                    break;
+                case ByteCodeInterpreter.LOADN:
+                    int last = pc + 2 + code[pc + 1];
+                    for (int j = pc + 2; j < last; j++) {
+                        clear = add(acc, clear, columns[code[j]], lanes);
+                    }
+                    pc = last;
+                    break;
+                default:
+                    pc += 2;
+                    break;
+            }
+        }
+        return pc;
+    }
+
+    /**
+     * acc += column
+     * @return false, acc is no longer clear
+     */
+    private static boolean add(int[] acc, boolean clear, int[] column, int lanes){
+        if (clear){
+            System.arraycopy(column, 0, acc, 0, lanes);
+        }
+        else{
+            for (int i = 0; i < lanes; i++) {
+                acc[i] += column[i];
+            }
+        }
+        return false;
+    }
+
+    /**
+     * column = acc + k
+     */
+    private static void store(int[] acc, boolean clear, int k, int[] column, int lanes){
+        if (clear){
+            Arrays.fill(column, 0, lanes, k);
+        }
+        else{
+            for (int i = 0; i < lanes; i++) {
+                column[i] = acc[i] + k;
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package simple;
+
+import java.util.Arrays;
+
+/**
+ * Computes the value of one identifier without running the whole program, see Parser.evaluate.
+ * The program is sliced backward from the last statement assigning the identifier:
+ * - an ID term reads the value of the last statement before it that assigns the same slot, or 0 if there is none
+ * - only the statements reached that way are evaluated, in dependency order
+ * - the value of every statement evaluated is kept, so later queries stop where earlier ones went
+ * The writer of every ID term is found once when the evaluator is made, a pass over the Ast.
+ * After that the cost of a query depends on the statements it depends on, not on the size of the program.
+ * Values are those of running the program on fresh memory, with the same int overflow.
+ * Dependencies are followed with a stack of statements instead of recursion, so a long chain of them does not overflow.
+ */
+public class DemandEvaluator {
+
+    private final IdTable idTable;
+    private final int[] statements;     // ASSIGN node of each statement
+    private final int[] kinds;          // Ast.ID or Ast.INT of each term, by node
+    private final int[] operands;       // INT value, or for an ID term the statement it reads, -1 for none
+    private final int[] lastWriter;     // last statement assigning each slot, -1 for none
+    private final int[] values;         // value of each statement once it is evaluated
+    private final boolean[] evaluated;
+    private int evaluatedCount = 0;
+    private int[] stack = new int[16];
+
+    /**
+     * @param ast the statements of a valid program
+     * @param idTable its identifiers
+     */
+    public DemandEvaluator(Ast ast, IdTable idTable){
+        this.idTable = idTable;
+        int count = ast.statements();
+        this.statements = new int[count];
+        this.kinds = new int[ast.size()];
+        this.operands = new int[ast.size()];
+        this.lastWriter = new int[idTable.size()];
+        this.values = new int[count];
+        this.evaluated = new boolean[count];
+        Arrays.fill(this.lastWriter, -1);
+        int statement = 0;
+        for (int node = 0; node < ast.size(); node = ast.next(node)) {
+            this.statements[statement] = node;
+            for (int term = node + 1; term < ast.next(node); term++) {
+                this.kinds[term] = ast.kind(term);
+                // the terms read memory before the statement stores, x = x + 1 reads the previous x
+                this.operands[term] = ast.kind(term) == Ast.ID ? this.lastWriter[ast.operand(term)] : ast.operand(term);
+            }
+            this.lastWriter[ast.operand(node)] = statement;
+            statement++;
+        }
+    }
+
+    /**
+     * The value of identifier name after the whole program, evaluating only the statements it depends on.
+     * @return the value, or null if name is not an identifier of the program
+     */
+    public Integer evaluate(String name){
+        int slot = this.idTable.getAddress(name);
+        if (slot == -1){
+            return null;
+        }
+        int statement = this.lastWriter[slot];
+        return statement == -1 ? 0 : this.evaluateStatement(statement);
+    }
+
+    /**
+     * value of a statement, evaluating first the statements it reads that have no value yet
+     */
+    private int evaluateStatement(int statement){
+        int size = 0;
+        this.stack[size++] = statement;
+        while (size > 0) {
+            int top = this.stack[size - 1];
+            if (this.evaluated[top]){
+                size--;
+                continue;
+            }
+            int node = this.statements[top];
+            int end = top + 1 < this.statements.length ? this.statements[top + 1] : this.kinds.length;
+            // push every missing dependency at once, top is then only looked at again when they are done
+            int before = size;
+            for (int term = node + 1; term < end; term++) {
+                int writer = this.operands[term];
+                if (this.kinds[term] == Ast.ID && writer != -1 && !this.evaluated[writer]){
+                    if (size == this.stack.length){
+                        this.stack = Arrays.copyOf(this.stack, size * 2);
+                    }
+                    this.stack[size++] = writer;
+                }
+            }
+            if (size > before){
+                continue;
+            }
+            int value = 0;
+            for (int term = node + 1; term < end; term++) {
+                if (this.kinds[term] == Ast.INT){
+                    value += this.operands[term];
+                }
+                else if (this.operands[term] != -1){
+                    value += this.values[this.operands[term]];
+                }
+            }
+            this.values[top] = value;
+            this.evaluated[top] = true;
+            this.evaluatedCount++;
+            size--;
+        }
+        return this.values[statement];
+    }
+
+    /**
+     * number of statements evaluated so far by all queries
+     */
+    public int getEvaluated(){
+        return this.evaluatedCount;
+    }
+
+    /**
+     * number of statements in the program
+     */
+    public int getStatements(){
+        return this.statements.length;
+    }
+}
@@ -0,0 +1,192 @@
+package simple;
+
+import java.util.Arrays;
+
+/**
+ * Define the class IdTable with the following data members and methods:
+ * - an open addressing hash table from identifiers to int addresses.
+ * The keys are the identifiers and the values represent the address in memory in which the identifier will be stored (if an interpreter were built)
+ * You can also just think of it as the order the ids appear- the first id will have address 0, the second id will have address 1, and so on.
+ * The IdTable is a class that tracks the identifiers within a program.
+ * When an identifier appears on the left-hand-side of an assignment statement,
+ * add it to the IdTable. When an identifier appears on the right-hand-side of an assignment statement,
+ * check the IdTable to see if the identifier has been defined (it is an error if not).
+ * Identifiers are looked up straight from a char buffer, e.g. the text of a TokenBuffer, without making a String.
+ * Each name is copied once into a packed arena when it is first added.
+ */
+public class IdTable {
+
+    private int[] buckets;          // address + 1 of the id in each bucket, 0 if empty, linear probing
+    private int[] hashes;           // hash of each id, by address
+    private int[] offsets;          // name of each id in names, by address
+    private int[] lengths;
+    private char[] names;
+    private int namesSize;
+    private String[] strings;       // names made into Strings by name(), by address
+    private int size;
+
+    public IdTable(){
+        this.buckets = new int[16];
+        this.hashes = new int[8];
+        this.offsets = new int[8];
+        this.lengths = new int[8];
+        this.names = new char[64];
+        this.strings = new String[8];
+    }
+
+    /**
+     * Add an entry to the map, you need only send the id.
+     * An id that is already in the table keeps its address, so a reassigned id reuses its memory slot.
+     * @return the address of the id
+     */
+    public int add(String IdValue){
+        return this.add(IdValue.toCharArray(), 0, IdValue.length());
+    }
+
+    /**
+     * Add the id in buffer[offset..offset + length].
+     * @return the address of the id
+     */
+    public int add(char[] buffer, int offset, int length){
+        return this.add(buffer, offset, length, TokenBuffer.hash(buffer, offset, offset + length));
+    }
+
+    /**
+     * Add the id in buffer[offset..offset + length] whose String.hashCode is already known, e.g. TokenBuffer.hash.
+     * @return the address of the id
+     */
+    public int add(char[] buffer, int offset, int length, int stringHash){
+        int hash = spread(stringHash);
+        int bucket = this.find(hash, buffer, offset, length);
+        if (this.buckets[bucket] != 0){
+            return this.buckets[bucket] - 1;
+        }
+        int address = this.size++;
+        if (address == this.hashes.length){
+            int capacity = address * 2;
+            this.hashes = Arrays.copyOf(this.hashes, capacity);
+            this.offsets = Arrays.copyOf(this.offsets, capacity);
+            this.lengths = Arrays.copyOf(this.lengths, capacity);
+            this.strings = Arrays.copyOf(this.strings, capacity);
+        }
+        if (this.namesSize + length > this.names.length){
+            this.names = Arrays.copyOf(this.names, Math.max(this.namesSize + length, this.names.length * 2));
+        }
+        System.arraycopy(buffer, offset, this.names, this.namesSize, length);
+        this.hashes[address] = hash;
+        this.offsets[address] = this.namesSize;
+        this.lengths[address] = length;
+        this.namesSize += length;
+        this.buckets[bucket] = address + 1;
+        // keep at most half of the buckets used so probes stay short
+        if (this.size * 2 > this.buckets.length){
+            this.rehash();
+        }
+        return address;
+    }
+
+    /**
+     * - *getAddress- this method returns the address associated with an id, or -1 if not found.*
+     */
+    public int getAddress(String IdValue){
+        return this.getAddress(IdValue.toCharArray(), 0, IdValue.length());
+    }
+
+    /**
+     * the address of the id in buffer[offset..offset + length], or -1 if not found
+     */
+    public int getAddress(char[] buffer, int offset, int length){
+        return this.getAddress(buffer, offset, length, TokenBuffer.hash(buffer, offset, offset + length));
+    }
+
+    /**
+     * the address of the id in buffer[offset..offset + length] whose String.hashCode is already known, or -1 if not found
+     */
+    public int getAddress(char[] buffer, int offset, int length, int stringHash){
+        int bucket = this.find(spread(stringHash), buffer, offset, length);
+        return this.buckets[bucket] - 1;
+    }
+
+    /**
+     * the id at an address
+     */
+    public String name(int address){
+        if (this.strings[address] == null){
+            this.strings[address] = new String(this.names, this.offsets[address], this.lengths[address]);
+        }
+        return this.strings[address];
+    }
+
+    /**
+     * number of distinct ids, the memory slots needed to run the program
+     */
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * Remove every id, keeping the allocated arrays for reuse.
+     */
+    public void clear(){
+        Arrays.fill(this.buckets, 0);
+        Arrays.fill(this.strings, 0, this.size, null);
+        this.size = 0;
+        this.namesSize = 0;
+    }
+
+    /**
+     * the bucket holding the id, or the empty bucket where it would go
+     */
+    private int find(int hash, char[] buffer, int offset, int length){
+        int mask = this.buckets.length - 1;
+        int bucket = hash & mask;
+        while (true) {
+            int entry = this.buckets[bucket];
+            if (entry == 0){
+                return bucket;
+            }
+            int address = entry - 1;
+            if (this.hashes[address] == hash && this.lengths[address] == length
+                    && Arrays.equals(this.names, this.offsets[address], this.offsets[address] + length,
+                    buffer, offset, offset + length)){
+                return bucket;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+    }
+
+    private void rehash(){
+        int[] buckets = new int[this.buckets.length * 2];
+        int mask = buckets.length - 1;
+        for (int address = 0; address < this.size; address++) {
+            int bucket = this.hashes[address] & mask;
+            while (buckets[bucket] != 0){
+                bucket = (bucket + 1) & mask;
+            }
+            buckets[bucket] = address + 1;
+        }
+        this.buckets = buckets;
+    }
+
+    /**
+     * String.hashCode of the id, spread so nearby names do not cluster in the low bits
+     */
+    private static int spread(int hash){
+        return hash ^ (hash >>> 16) ^ (hash >>> 7);
+    }
+
+    /**
+     * the ids and their addresses in the order they were added, e.g. {x32=0, rt=1}
+     */
+    public String toString(){
+        StringBuilder sb = new StringBuilder("{");
+        for (int address = 0; address < this.size; address++) {
+            if (address > 0){
+                sb.append(", ");
+            }
+            sb.append(this.names, this.offsets[address], this.lengths[address]).append('=').append(address);
+        }
+        return sb.append('}').toString();
+    }
+
+}
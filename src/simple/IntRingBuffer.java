@@ -0,0 +1,146 @@
+package simple;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded queue of ints between exactly one producer thread and one consumer thread, without locks.
+ * - the producer only writes tail and the consumer only writes head, each publishes with a release store
+ * - each side caches the other's index and only reads it again when the ring looks full or empty
+ * - ints are moved in blocks with System.arraycopy, so the cost of the handoff is shared by many values
+ * A side that has to wait spins a little, then yields, then parks for a moment, so a pipeline
+ * with more threads than cores still makes progress.
+ * The producer ends the stream with close, the consumer can give up early with cancel,
+ * and any thread can stop both sides with abort, e.g. when another stage of a pipeline failed.
+ * @see Pipeline
+ */
+public class IntRingBuffer {
+
+    private final int[] ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();   // next int to take, written by the consumer
+    private final AtomicLong tail = new AtomicLong();   // next int to put, written by the producer
+    private long headCache;         // the producer's last read of head
+    private long tailCache;         // the consumer's last read of tail
+    private volatile boolean closed = false;
+    private volatile boolean cancelled = false;
+    private volatile boolean aborted = false;
+
+    /**
+     * @param capacity ints the ring holds, rounded up to a power of 2
+     */
+    public IntRingBuffer(int capacity){
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.ring = new int[size];
+        this.mask = size - 1;
+    }
+
+    public int capacity(){
+        return this.ring.length;
+    }
+
+    /**
+     * Put count ints of values starting at from, waiting while the ring is full. Producer only.
+     * @return false if the consumer cancelled, the rest of the ints are dropped
+     */
+    public boolean put(int[] values, int from, int count){
+        long tail = this.tail.get();
+        int idle = 0;
+        while (count > 0) {
+            int free = (int) (this.ring.length - (tail - this.headCache));
+            if (free == 0){
+                this.headCache = this.head.get();
+                free = (int) (this.ring.length - (tail - this.headCache));
+            }
+            if (free == 0){
+                if (this.cancelled || this.aborted){
+                    return false;
+                }
+                idle = idle(idle);
+                continue;
+            }
+            idle = 0;
+            int n = Math.min(free, count);
+            int start = (int) tail & this.mask;
+            int first = Math.min(n, this.ring.length - start);
+            System.arraycopy(values, from, this.ring, start, first);
+            System.arraycopy(values, from + first, this.ring, 0, n - first);
+            tail += n;
+            from += n;
+            count -= n;
+            this.tail.lazySet(tail);
+        }
+        return !this.cancelled && !this.aborted;
+    }
+
+    /**
+     * Take up to max ints into values starting at from, waiting until there is at least one. Consumer only.
+     * @return number of ints taken, -1 once the producer closed the ring and every int has been taken, or once it is aborted
+     */
+    public int take(int[] values, int from, int max){
+        long head = this.head.get();
+        int idle = 0;
+        while (true) {
+            int available = (int) (this.tailCache - head);
+            if (available == 0){
+                // read closed before tail, ints put before close are then seen
+                boolean closed = this.closed;
+                this.tailCache = this.tail.get();
+                available = (int) (this.tailCache - head);
+                if (available == 0){
+                    if (closed || this.aborted){
+                        return -1;
+                    }
+                    idle = idle(idle);
+                    continue;
+                }
+            }
+            int n = Math.min(available, max);
+            int start = (int) head & this.mask;
+            int first = Math.min(n, this.ring.length - start);
+            System.arraycopy(this.ring, start, values, from, first);
+            System.arraycopy(this.ring, 0, values, from + first, n - first);
+            this.head.lazySet(head + n);
+            return n;
+        }
+    }
+
+    /**
+     * No more ints will be put, take returns -1 once the ring is empty. Producer only.
+     */
+    public void close(){
+        this.closed = true;
+    }
+
+    /**
+     * No more ints will be taken, put stops waiting and returns false. Consumer only.
+     */
+    public void cancel(){
+        this.cancelled = true;
+    }
+
+    /**
+     * Stop the stream from any thread: put returns false and take returns -1 instead of waiting.
+     * Unlike close and cancel it writes a flag of its own, so it can be called by a thread that is neither side.
+     */
+    public void abort(){
+        this.aborted = true;
+    }
+
+    /**
+     * wait a little longer each time a side finds nothing to do
+     * @return the next value of idle
+     */
+    private static int idle(int idle){
+        if (idle < 100){
+            Thread.onSpinWait();
+        }
+        else if (idle < 200){
+            Thread.yield();
+        }
+        else{
+            LockSupport.parkNanos(20_000);
+        }
+        return idle + 1;
+    }
+}
@@ -0,0 +1,372 @@
+package simple;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiles the bytecode of a ByteCodeInterpreter into a JVM hidden class, so HotSpot can compile it to native code.
+ * Every instruction becomes straight-line JVM code over the memory array and an int accumulator,
+ * giving the same results as ByteCodeInterpreter.run, including int overflow.
+ * The class has no branches, so it needs no stack map frames and the class file is written by hand.
+ * Code is split into methods below HotSpot's 8000 byte limit for JIT compilation,
+ * called from a tree of dispatch methods with run(int[] memory, int accumulator) at the root.
+ * @see ByteCodeInterpreter#setCompileThreshold
+ */
+public class JitCompiler {
+
+    private static final String CLASS_NAME = "simple/JitProgram";
+    private static final String DESCRIPTOR = "([II)I";
+    private static final MethodType TYPE = MethodType.methodType(int.class, int[].class, int.class);
+    private static final int METHOD_BYTES = 7000;  // below -XX:HugeMethodLimit=8000
+    private static final int CALLS_PER_METHOD = 1000;
+    private static final int MAX_METHODS = 20000;   // each takes 3 of the 65535 constant pool entries
+    static int methodLimit = MAX_METHODS;           // methods a class may have, lowered by tests to fail on small programs
+
+    // JVM opcodes
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int ILOAD_1 = 0x1b;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int IALOAD = 0x2e;
+    private static final int ISTORE_1 = 0x3c;
+    private static final int IASTORE = 0x4f;
+    private static final int IADD = 0x60;
+    private static final int ISHL = 0x78;
+    private static final int IRETURN = 0xac;
+    private static final int INVOKESTATIC = 0xb8;
+
+    /**
+     * A compiled program, call run instead of ByteCodeInterpreter.run.
+     */
+    public static final class Program {
+        private final MethodHandle handle;
+        private final int haltPc;
+
+        private Program(MethodHandle handle, int haltPc){
+            this.handle = handle;
+            this.haltPc = haltPc;
+        }
+
+        /**
+         * Run the compiled code on memory.
+         * @return the accumulator afterwards
+         */
+        public int run(int[] memory, int accumulator){
+            try {
+                return (int) this.handle.invokeExact(memory, accumulator);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * true if the program stops at a STORE out of range, run then returns the accumulator at that point
+         */
+        public boolean halts(){
+            return this.haltPc >= 0;
+        }
+
+        /**
+         * pc of the STORE out of range the program stops at, -1 if it runs to the end
+         */
+        public int haltPc(){
+            return this.haltPc;
+        }
+    }
+
+    /**
+     * Compile the first size entries of code for a memory of memorySize slots.
+     * Like run(), the code stops at the first store out of range.
+     * @return the compiled program, or null if it is too large for one class
+     */
+    public static Program compile(int[] code, int size, int memorySize){
+        JitCompiler compiler = new JitCompiler();
+        int haltPc = compiler.translate(code, size, memorySize);
+        if (compiler.methods.size() > methodLimit){
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(compiler.toClassFile(), true);
+            return new Program(lookup.findStatic(lookup.lookupClass(), "run", TYPE), haltPc);
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            throw new IllegalStateException("Could not load compiled program", e);
+        }
+    }
+
+    private final LinkedHashMap<String, byte[]> methods = new LinkedHashMap<>();
+    private ByteArrayOutputStream method = new ByteArrayOutputStream();
+
+    private JitCompiler(){
+    }
+
+    /**
+     * Translate the interpreter code into chunk methods, then build the tree of methods calling them.
+     * @return pc of the store out of range the code stops at, -1 if there is none
+     */
+    private int translate(int[] code, int size, int memorySize){
+        boolean halts = false;
+        int pc = 0;
+        int haltPc = -1;
+        while (pc < size && !halts) {
+            int op = code[pc];
+            switch (op){
+                case ByteCodeInterpreter.LOAD:
+                    this.load(code[pc + 1]);
+                    break;
+                case ByteCodeInterpreter.LOADI:
+                    this.loadi(code[pc + 1]);
+                    break;
+                case ByteCodeInterpreter.STORE:
+                    halts = !this.store(code[pc + 1], memorySize);
+                    break;
+                case ByteCodeInterpreter.STOREI:
+                    this.loadi(code[pc + 1]);
+                    halts = !this.store(code[pc + 2], memorySize);
+                    break;
+                case ByteCodeInterpreter.COPY:
+                    this.load(code[pc + 1]);
+                    halts = !this.store(code[pc + 2], memorySize);
+                    break;
+                case ByteCodeInterpreter.ADDI:
+                    // no load of an address out of range, it may be past the end of the array
+                    if (code[pc + 1] < memorySize){
+                        this.load(code[pc + 1]);
+                    }
+                    this.loadi(code[pc + 2]);
+                    halts = !this.store(code[pc + 1], memorySize);
+                    break;
+                case ByteCodeInterpreter.LOADN:
+                    for (int i = pc + 2; i < pc + 2 + code[pc + 1]; i++) {
+                        this.load(code[i]);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (halts){
+                haltPc = pc;
+            }
+            pc += ByteCodeInterpreter.width(code, pc);
+        }
+        this.endMethod();
+
+        // dispatch methods calling up to CALLS_PER_METHOD methods of the level below, until one is left
+        ArrayList<String> level = new ArrayList<>(this.methods.keySet());
+        while (level.size() > 1) {
+            ArrayList<String> next = new ArrayList<>();
+            for (int i = 0; i < level.size(); i += CALLS_PER_METHOD) {
+                for (int j = i; j < Math.min(i + CALLS_PER_METHOD, level.size()); j++) {
+                    this.method.write(ALOAD_0);
+                    this.method.write(ILOAD_1);
+                    this.method.write(INVOKESTATIC);
+                    this.writeShort(this.method, this.methodIndex(level.get(j)));
+                    this.method.write(ISTORE_1);
+                }
+                next.add(this.endMethod());
+            }
+            level = next;
+        }
+        // the root is called run
+        byte[] root = this.methods.remove(level.get(0));
+        this.methods.put("run", root);
+        return haltPc;
+    }
+
+    /** accumulator += memory[address] */
+    private void load(int address){
+        this.method.write(ILOAD_1);
+        this.method.write(ALOAD_0);
+        this.push(address);
+        this.method.write(IALOAD);
+        this.method.write(IADD);
+        this.method.write(ISTORE_1);
+        this.split();
+    }
+
+    /** accumulator += value */
+    private void loadi(int value){
+        this.method.write(ILOAD_1);
+        this.push(value);
+        this.method.write(IADD);
+        this.method.write(ISTORE_1);
+        this.split();
+    }
+
+    /**
+     * memory[address] = accumulator, accumulator = 0
+     * @return false if the address is out of range, nothing is written then
+     */
+    private boolean store(int address, int memorySize){
+        if (address >= memorySize){
+            return false;
+        }
+        this.method.write(ALOAD_0);
+        this.push(address);
+        this.method.write(ILOAD_1);
+        this.method.write(IASTORE);
+        this.method.write(ICONST_0);
+        this.method.write(ISTORE_1);
+        this.split();
+        return true;
+    }
+
+    /**
+     * Start a new method once the current one is large enough, all state is in memory and the accumulator
+     * so code can be cut after any instruction.
+     */
+    private void split(){
+        if (this.method.size() >= METHOD_BYTES){
+            this.endMethod();
+        }
+    }
+
+    /**
+     * Push an int constant without using the constant pool,
+     * values outside of a short are built as (high << 16) + low.
+     */
+    private void push(int value){
+        if (value >= -1 && value <= 5){
+            this.method.write(ICONST_0 + value);
+        }
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE){
+            this.method.write(BIPUSH);
+            this.method.write(value);
+        }
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE){
+            this.method.write(SIPUSH);
+            this.writeShort(this.method, value);
+        }
+        else{
+            short low = (short) value;
+            int high = (value - low) >> 16;
+            this.push(high);
+            this.method.write(BIPUSH);
+            this.method.write(16);
+            this.method.write(ISHL);
+            this.push(low);
+            this.method.write(IADD);
+        }
+    }
+
+    /**
+     * Finish the method being written, returning the accumulator.
+     * @return its name
+     */
+    private String endMethod(){
+        this.method.write(ILOAD_1);
+        this.method.write(IRETURN);
+        String name = "m" + this.methods.size();
+        this.methods.put(name, this.method.toByteArray());
+        this.method = new ByteArrayOutputStream();
+        return name;
+    }
+
+    // constant pool, built while writing the dispatch methods
+    private final ArrayList<byte[]> constants = new ArrayList<>();
+    private final Map<String, Integer> utf8 = new LinkedHashMap<>();
+    private final Map<String, Integer> methodRefs = new LinkedHashMap<>();
+    private int thisClass = -1;
+
+    private int utf8Index(String value){
+        return this.utf8.computeIfAbsent(value, v -> {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.write(1);     // CONSTANT_Utf8
+            this.writeShort(bytes, v.length());
+            bytes.writeBytes(v.getBytes(StandardCharsets.US_ASCII));
+            return this.addConstant(bytes.toByteArray());
+        });
+    }
+
+    private int classIndex(String name){
+        int nameIndex = this.utf8Index(name);
+        return this.addConstant(new byte[]{7, (byte) (nameIndex >> 8), (byte) nameIndex});     // CONSTANT_Class
+    }
+
+    private int methodIndex(String name){
+        return this.methodRefs.computeIfAbsent(name, n -> {
+            if (this.thisClass < 0){
+                this.thisClass = this.classIndex(CLASS_NAME);
+            }
+            int nameIndex = this.utf8Index(n);
+            int descriptorIndex = this.utf8Index(DESCRIPTOR);
+            int nameAndType = this.addConstant(new byte[]{12, (byte) (nameIndex >> 8), (byte) nameIndex,
+                    (byte) (descriptorIndex >> 8), (byte) descriptorIndex});    // CONSTANT_NameAndType
+            return this.addConstant(new byte[]{10, (byte) (this.thisClass >> 8), (byte) this.thisClass,
+                    (byte) (nameAndType >> 8), (byte) nameAndType});           // CONSTANT_Methodref
+        });
+    }
+
+    private int addConstant(byte[] entry){
+        this.constants.add(entry);
+        return this.constants.size();   // constant pool indexes start at 1
+    }
+
+    private void writeShort(ByteArrayOutputStream out, int value){
+        out.write(value >> 8);
+        out.write(value);
+    }
+
+    /**
+     * Write the class file: public static int name(int[], int) for every method, nothing else.
+     */
+    private byte[] toClassFile(){
+        if (this.thisClass < 0){
+            this.thisClass = this.classIndex(CLASS_NAME);
+        }
+        int superClass = this.classIndex("java/lang/Object");
+        int code = this.utf8Index("Code");
+        int descriptor = this.utf8Index(DESCRIPTOR);
+        int[] names = new int[this.methods.size()];
+        int n = 0;
+        for (String name : this.methods.keySet()) {
+            names[n++] = this.utf8Index(name);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(52);     // Java 8 format, no stack map frames needed
+            out.writeShort(this.constants.size() + 1);
+            for (byte[] entry : this.constants) {
+                out.write(entry);
+            }
+            out.writeShort(0x0010 | 0x0020);    // ACC_FINAL | ACC_SUPER
+            out.writeShort(this.thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);      // interfaces
+            out.writeShort(0);      // fields
+            out.writeShort(this.methods.size());
+            n = 0;
+            for (byte[] body : this.methods.values()) {
+                out.writeShort(0x0001 | 0x0008);    // ACC_PUBLIC | ACC_STATIC
+                out.writeShort(names[n++]);
+                out.writeShort(descriptor);
+                out.writeShort(1);
+                out.writeShort(code);
+                out.writeInt(12 + body.length);
+                out.writeShort(4);  // max stack
+                out.writeShort(2);  // max locals: memory, accumulator
+                out.writeInt(body.length);
+                out.write(body);
+                out.writeShort(0);  // exception table
+                out.writeShort(0);  // attributes
+            }
+            out.writeShort(0);      // class attributes
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,197 @@
+package simple;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Scanner;
+
+/**
+ * Class to build an array of Tokens from an input file
+ * Every token is scanned by a ByteScanner, from the bytes of the file or of the stream, so the input is
+ * never held twice and both getAllTokens and getNextToken produce the same tokens.
+ * @author YJ
+ * @see Token
+ * @see Parser
+ */
+public class Lexer {
+    ArrayList<Token> tokenArrayList;
+    private ReadableByteChannel channel;    // null when the whole input is held in source
+    private boolean eofReturned = false;
+    private final TokenBuffer scratch = new TokenBuffer(1);   // holds the token returned by getNextToken
+    private byte[] source;              // bytes of the file, the only copy of it
+    private final ByteScanner scanner;  // input of getNextToken
+    private int tokensScanned = 0;      // tokens returned by nextToken, for Metrics
+    public static final int CHUNK_SIZE = 1 << 16;
+    public static final String INTTOKEN="INT";
+    public static final String IDTOKEN="ID";
+    public static final String ASSMTTOKEN="ASSMT";
+    public static final String PLUSTOKEN="PLUS";
+    public static final String UNKNOWNTOKEN = "UNKNOWN";
+    public static final String EOFTOKEN="EOF";
+
+    /**
+     * call getInput to get the file data into our buffer
+     * @param fileName the file we open
+     */
+    public Lexer(String fileName) {
+
+        getInput(fileName);
+        scanner = new ByteScanner(source, Charset.defaultCharset());
+        tokenArrayList = new ArrayList<>();
+    }
+
+    /**
+     * Stream the file through a fixed size window instead of reading it into a String,
+     * so heap use does not depend on the size of the program.
+     * @param path the file we open
+     */
+    public Lexer(Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Scan the channel chunk by chunk, decoding with the platform charset like new String(bytes) does.
+     * The channel is closed once its end is reached.
+     * @param channel the input, e.g. a FileChannel
+     */
+    public Lexer(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.scanner = new ByteScanner(channel, Charset.defaultCharset(), CHUNK_SIZE);
+        tokenArrayList = new ArrayList<>();
+    }
+
+    /**
+     * Reads given file into the data member source, its bytes are scanned without decoding them into a String
+     * @param fileName name of file to parse
+    */
+    private void getInput(String fileName)  {
+        try {
+            Path filePath = Paths.get(fileName);
+            source = Files.readAllBytes(filePath);
+        } catch (IOException e) {
+            System.out.println ("You did not enter a valid file name in the run arguments.");
+            System.out.println ("Please enter a string to be parsed:");
+            Scanner scanner = new Scanner(System.in);
+            source = scanner.nextLine().getBytes(Charset.defaultCharset());
+        }
+    }
+
+    /**
+     * Return all the token in the file
+     * Token objects are built from tokenize(), the Parser works on the TokenBuffer directly.
+     * @return ArrayList of Token
+     */
+    public ArrayList<Token> getAllTokens(){
+        TokenBuffer tokens = this.tokenize();
+        tokenArrayList.ensureCapacity(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            tokenArrayList.add(tokens.token(i));
+        }
+        return tokenArrayList;
+    }
+
+    /**
+     * Scan the whole input into a packed TokenBuffer, ending with an EOF token.
+     */
+    public TokenBuffer tokenize(){
+        Metrics.LexEvent event = Metrics.beginLex();
+        // a String-backed lexer scans its own view so that getNextToken still starts from the beginning,
+        // a channel-backed lexer can only be read once and shares the stream window with getNextToken
+        TokenBuffer tokens = new TokenBuffer(this.source != null ? this.source.length / 4 + 16 : CHUNK_SIZE);
+        ByteScanner in = this.source != null ? new ByteScanner(this.source, Charset.defaultCharset()) : this.scanner;
+        while (in.scan(tokens) != TokenBuffer.EOF){
+            // keep scanning
+        }
+        tokens.add(TokenBuffer.EOF);
+        Metrics.lexed(event, this.scanner.bytesRead(), tokens.size());
+        return tokens;
+    }
+
+    /**
+     * Scan every token of chars that are already decoded into out, without an EOF token.
+     * Used for text held as chars, e.g. by Parser.reset, Session and ParallelLexer.
+     */
+    static void scanChunk(CharBuffer in, TokenBuffer out){
+        ByteScanner scanner = new ByteScanner(in);
+        while (scanner.scan(out) != TokenBuffer.EOF){
+            // keep scanning
+        }
+    }
+
+    /**
+     * returns a single Token
+     */
+    public Token getNextToken() throws Exception {
+        this.scratch.clear();
+        this.nextToken(this.scratch);
+        return this.scratch.token(0);
+    }
+
+    /**
+     * Append the next token of the input to the given buffer, without building a Token.
+     * @return kind of the token, TokenBuffer.EOF once the input is exhausted
+     */
+    public int nextToken(TokenBuffer tokens) throws Exception {
+        if (this.eofReturned){
+            throw new Exception("Index out of range");
+        }
+        int kind = this.scanner.scan(tokens);
+        this.tokensScanned++;
+        if (kind == TokenBuffer.EOF){
+            tokens.add(TokenBuffer.EOF);
+            this.eofReturned = true;
+            // the time is part of the parse of a streaming Parser, only the totals are counted
+            Metrics.lexed(Metrics.beginLex(), this.scanner.bytesRead(), this.tokensScanned);
+        }
+        return kind;
+    }
+
+    /**
+     * Release the channel of a streaming lexer. Called automatically once the input is exhausted.
+     */
+    public void close() throws IOException {
+        if (this.channel != null){
+            this.channel.close();
+        }
+    }
+
+
+    /**
+     * Before your run this starter code
+     * Select Run | Edit Configurations from the main menu.
+     * In Program arguments add the name of file you want to test (e.g., test.txt)
+     * @param args args[0]
+     */
+    public static void main(String[] args) throws Exception {
+        String fileName="";
+        if (args.length==0) {
+            System.out.println("You can test a different file by adding as an argument");
+            System.out.println("See comment above main");
+            System.out.println("For this run, test.txt used");
+            fileName="test.txt";
+        } else {
+            fileName=args[0];
+        }
+        Lexer lexer = new Lexer(fileName);
+        // just print out the text from the file
+        System.out.println(new String(lexer.source));
+        // here is where you'll call getAllTokens
+        ArrayList<Token> tokenArrayList = lexer.getAllTokens();
+        for (Token token: tokenArrayList) {
+            System.out.println(token.type + " " + token.value);
+        }
+        // try getNextToken func
+        System.out.println("------------------------------------------------------------------");
+        System.out.println("getNextToken Test Output: ");
+        for (int i = 0; i < 3; i++) {
+            System.out.println(lexer.getNextToken());
+        }
+    }
+}
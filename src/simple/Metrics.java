@@ -0,0 +1,325 @@
+package simple;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Counters for where the time of a program goes, off by default.
+ * - Lexer, ParallelLexer: wall time, bytes and tokens of each tokenize
+ * - Parser: wall time, statements parsed and errors, a streaming Parser also lexes in this time
+ * - ByteCodeInterpreter: wall time, instructions by opcode and memory slots of each run
+ * While enabled each phase is also committed as a JFR event in the SIMPLE category,
+ * and the totals can be read from the MetricsMXBean.
+ * While disabled a phase costs one volatile read.
+ * Code is straight-line, so the instructions a run executes are counted from its bytecode once
+ * and not in the interpreter loop. A run stopped by an address out of range counts the code before it.
+ */
+public final class Metrics implements MetricsMXBean {
+
+    public static final String OBJECT_NAME = "simple:type=Metrics";
+    static final String[] OPCODES = {"LOAD", "LOADI", "STORE", "STOREI", "COPY", "ADDI", "LOADN"};
+    private static final Metrics INSTANCE = new Metrics();
+    private static volatile boolean enabled = false;
+    private static boolean registered = false;
+
+    private final LongAdder lexNanos = new LongAdder();
+    private final LongAdder lexedBytes = new LongAdder();
+    private final LongAdder lexedTokens = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final LongAdder statementsParsed = new LongAdder();
+    private final LongAdder executeNanos = new LongAdder();
+    private final LongAdder[] opcodeCounts = new LongAdder[OPCODES.length];
+    private final LongAccumulator peakMemorySlots = new LongAccumulator(Math::max, 0);
+    private final ConcurrentHashMap<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+
+    /**
+     * A timed phase, the start is kept apart from the JFR fields so the totals do not depend on JFR recording.
+     */
+    abstract static class PhaseEvent extends Event {
+        transient long start;
+    }
+
+    @Name("simple.Lex")
+    @Label("Lex")
+    @Category("SIMPLE")
+    static final class LexEvent extends PhaseEvent {
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+        @Label("Tokens")
+        long tokens;
+    }
+
+    @Name("simple.Parse")
+    @Label("Parse")
+    @Category("SIMPLE")
+    static final class ParseEvent extends PhaseEvent {
+        @Label("Statements")
+        long statements;
+        @Label("Error")
+        String error;
+    }
+
+    @Name("simple.Execute")
+    @Label("Execute")
+    @Category("SIMPLE")
+    static final class ExecuteEvent extends PhaseEvent {
+        @Label("Instructions")
+        long instructions;
+        @Label("Memory Slots")
+        int memorySlots;
+    }
+
+    private Metrics(){
+        for (int i = 0; i < OPCODES.length; i++) {
+            this.opcodeCounts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * the metrics of this JVM
+     */
+    public static Metrics get(){
+        return INSTANCE;
+    }
+
+    /**
+     * true while phases are counted, checked by the Lexer, Parser and interpreter before timing anything
+     */
+    static boolean recording(){
+        return enabled;
+    }
+
+    @Override
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    /**
+     * Start or stop counting. The MBean is registered with the platform MBeanServer the first time metrics are enabled.
+     */
+    @Override
+    public void setEnabled(boolean enabled){
+        if (enabled){
+            register();
+        }
+        Metrics.enabled = enabled;
+    }
+
+    private static synchronized void register(){
+        if (registered){
+            return;
+        }
+        registered = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // registered by another class loader, e.g. in a test run
+        } catch (JMException e) {
+            System.out.println("Error: could not register metrics, " + e.getMessage());
+        }
+    }
+
+    static LexEvent beginLex(){
+        return enabled ? begin(new LexEvent()) : null;
+    }
+
+    static ParseEvent beginParse(){
+        return enabled ? begin(new ParseEvent()) : null;
+    }
+
+    static ExecuteEvent beginExecute(){
+        return enabled ? begin(new ExecuteEvent()) : null;
+    }
+
+    private static <E extends PhaseEvent> E begin(E event){
+        event.start = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * end a phase started by beginLex, nothing happens for null
+     */
+    static void lexed(LexEvent event, long bytes, int tokens){
+        if (event == null){
+            return;
+        }
+        INSTANCE.lexNanos.add(System.nanoTime() - event.start);
+        INSTANCE.lexedBytes.add(bytes);
+        INSTANCE.lexedTokens.add(tokens);
+        event.bytes = bytes;
+        event.tokens = tokens;
+        event.commit();
+    }
+
+    /**
+     * end a phase started by beginParse
+     * @param error the kind of syntax error, e.g. "Expecting identifier", or null
+     */
+    static void parsed(ParseEvent event, int statements, String error){
+        if (event == null){
+            return;
+        }
+        INSTANCE.parseNanos.add(System.nanoTime() - event.start);
+        INSTANCE.statementsParsed.add(statements);
+        if (error != null){
+            error(error);
+        }
+        event.statements = statements;
+        event.error = error;
+        event.commit();
+    }
+
+    /**
+     * end a phase started by beginExecute
+     * @param opcodes instructions run by opcode, see countOpcodes
+     * @param instances copies of memory the code ran on at once, see ColumnarExecutor
+     */
+    static void executed(ExecuteEvent event, int[] opcodes, int memorySlots, int instances){
+        if (event == null){
+            return;
+        }
+        INSTANCE.executeNanos.add(System.nanoTime() - event.start);
+        long instructions = 0;
+        for (int i = 0; i < opcodes.length; i++) {
+            if (opcodes[i] != 0){
+                INSTANCE.opcodeCounts[i].add((long) opcodes[i] * instances);
+                instructions += (long) opcodes[i] * instances;
+            }
+        }
+        INSTANCE.peakMemorySlots.accumulate(memorySlots);
+        event.instructions = instructions;
+        event.memorySlots = memorySlots;
+        event.commit();
+    }
+
+    /**
+     * count an error that is not part of a phase, e.g. an address out of range
+     */
+    static void error(String kind){
+        if (enabled){
+            INSTANCE.errorCounts.computeIfAbsent(kind, k -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * number of instructions of each opcode in the first size entries of code
+     */
+    static int[] countOpcodes(int[] code, int size){
+        int[] counts = new int[OPCODES.length];
+        for (int pc = 0; pc < size; pc += ByteCodeInterpreter.width(code, pc)) {
+            if (code[pc] >= 0 && code[pc] < counts.length){
+                counts[code[pc]]++;
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public long getLexNanos(){
+        return this.lexNanos.sum();
+    }
+
+    @Override
+    public long getLexedBytes(){
+        return this.lexedBytes.sum();
+    }
+
+    @Override
+    public long getLexedTokens(){
+        return this.lexedTokens.sum();
+    }
+
+    @Override
+    public long getParseNanos(){
+        return this.parseNanos.sum();
+    }
+
+    @Override
+    public long getStatementsParsed(){
+        return this.statementsParsed.sum();
+    }
+
+    @Override
+    public long getExecuteNanos(){
+        return this.executeNanos.sum();
+    }
+
+    @Override
+    public long getInstructionsExecuted(){
+        long sum = 0;
+        for (LongAdder count : this.opcodeCounts) {
+            sum += count.sum();
+        }
+        return sum;
+    }
+
+    @Override
+    public Map<String, Long> getOpcodeCounts(){
+        TreeMap<String, Long> counts = new TreeMap<>();
+        for (int i = 0; i < OPCODES.length; i++) {
+            counts.put(OPCODES[i], this.opcodeCounts[i].sum());
+        }
+        return counts;
+    }
+
+    @Override
+    public long getPeakMemorySlots(){
+        return this.peakMemorySlots.get();
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts(){
+        TreeMap<String, Long> counts = new TreeMap<>();
+        this.errorCounts.forEach((kind, count) -> counts.put(kind, count.sum()));
+        return counts;
+    }
+
+    /**
+     * set every counter back to 0, enabled stays as it is
+     */
+    @Override
+    public void reset(){
+        this.lexNanos.reset();
+        this.lexedBytes.reset();
+        this.lexedTokens.reset();
+        this.parseNanos.reset();
+        this.statementsParsed.reset();
+        this.executeNanos.reset();
+        for (LongAdder count : this.opcodeCounts) {
+            count.reset();
+        }
+        this.peakMemorySlots.reset();
+        this.errorCounts.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "Metrics{" +
+                "lexNanos=" + this.getLexNanos() +
+                ", lexedBytes=" + this.getLexedBytes() +
+                ", lexedTokens=" + this.getLexedTokens() +
+                ", parseNanos=" + this.getParseNanos() +
+                ", statementsParsed=" + this.getStatementsParsed() +
+                ", executeNanos=" + this.getExecuteNanos() +
+                ", opcodeCounts=" + this.getOpcodeCounts() +
+                ", peakMemorySlots=" + this.getPeakMemorySlots() +
+                ", errorCounts=" + this.getErrorCounts() +
+                '}';
+    }
+}
@@ -0,0 +1,45 @@
+package simple;
+
+import java.util.Map;
+
+/**
+ * JMX view of Metrics, registered as simple:type=Metrics once metrics are enabled.
+ * Times are in nanoseconds and add up over every program since the last reset.
+ */
+public interface MetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getLexNanos();
+
+    long getLexedBytes();
+
+    long getLexedTokens();
+
+    long getParseNanos();
+
+    long getStatementsParsed();
+
+    long getExecuteNanos();
+
+    long getInstructionsExecuted();
+
+    /**
+     * instructions executed by opcode name, e.g. LOAD or STOREI
+     */
+    Map<String, Long> getOpcodeCounts();
+
+    /**
+     * largest memory, in slots, a program ran with
+     */
+    long getPeakMemorySlots();
+
+    /**
+     * syntax and run time errors by message, e.g. "Identifier not defined"
+     */
+    Map<String, Long> getErrorCounts();
+
+    void reset();
+}
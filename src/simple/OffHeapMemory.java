@@ -0,0 +1,146 @@
+package simple;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory of a ByteCodeInterpreter outside the Java heap, 4 bytes per slot, for programs with very many identifiers.
+ * The garbage collector never scans or copies it, so its pauses do not grow with the number of slots.
+ * - allocate: a direct buffer, gone with the interpreter
+ * - map: a file mapped into memory, so the state of a program can be reopened by a later run
+ * Slots are little endian ints, at most MAX_SLOTS of them.
+ * Only the thread running the program writes or grows the memory, any thread can read a slot with read.
+ * @see ByteCodeInterpreter#ByteCodeInterpreter(int, OffHeapMemory)
+ */
+public class OffHeapMemory {
+
+    /** slots that fit in one buffer */
+    public static final int MAX_SLOTS = Integer.MAX_VALUE / 4;
+
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel file;     // null for a direct buffer
+    // replaced when the memory grows, volatile so a reading thread sees the new buffer with the slots copied into it
+    private volatile ByteBuffer bytes;
+    private volatile IntBuffer slots;
+
+    private OffHeapMemory(FileChannel file){
+        this.file = file;
+    }
+
+    /**
+     * memory in a direct buffer, every slot starts at 0
+     */
+    public static OffHeapMemory allocate(){
+        OffHeapMemory memory = new OffHeapMemory(null);
+        memory.setBuffer(ByteBuffer.allocateDirect(64 * 4));
+        return memory;
+    }
+
+    /**
+     * Memory mapped from file, created if it does not exist. Slots saved by an earlier run keep their values,
+     * new slots start at 0. Writes reach the file when it is forced or closed, or whenever the OS writes them back.
+     */
+    public static OffHeapMemory map(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        OffHeapMemory memory = new OffHeapMemory(channel);
+        memory.setBuffer(channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size() & ~3L, 64 * 4)));
+        return memory;
+    }
+
+    private void setBuffer(ByteBuffer bytes){
+        this.bytes = bytes;
+        this.slots = bytes.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    /**
+     * slots that can be read and written without growing
+     */
+    public int capacity(){
+        return this.slots.capacity();
+    }
+
+    /**
+     * the slots, only valid until the memory grows
+     */
+    IntBuffer slots(){
+        return this.slots;
+    }
+
+    public int get(int slot){
+        return this.slots.get(slot);
+    }
+
+    /**
+     * The value of slot, safe while another thread runs the program, see ByteCodeInterpreter.read.
+     * An opaque read: never torn, and never older than a value this thread has already read there.
+     * A buffer the memory grew out of stays readable, it holds the values from before the growth.
+     */
+    public int read(int slot){
+        return (int) INTS.getOpaque(this.bytes, slot * 4);
+    }
+
+    public void set(int slot, int value){
+        this.slots.put(slot, value);
+    }
+
+    /**
+     * Grow to at least size slots, doubling the capacity. A mapped file grows with it.
+     */
+    public void ensureCapacity(int size){
+        if (size <= this.capacity()){
+            return;
+        }
+        if (size > MAX_SLOTS){
+            throw new IllegalArgumentException("at most " + MAX_SLOTS + " slots, got " + size);
+        }
+        long capacity = Math.min(Math.max(size, this.capacity() * 2L), MAX_SLOTS);
+        if (this.file != null){
+            try {
+                this.setBuffer(this.file.map(FileChannel.MapMode.READ_WRITE, 0, capacity * 4));
+            } catch (IOException e) {
+                throw new IllegalStateException("could not grow memory file", e);
+            }
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.allocateDirect((int) capacity * 4);
+        bytes.put(this.bytes.clear());
+        this.setBuffer(bytes.clear());
+    }
+
+    /**
+     * set slots from..to to 0
+     */
+    public void clear(int from, int to){
+        for (int slot = from; slot < to; slot++) {
+            this.slots.put(slot, 0);
+        }
+    }
+
+    /**
+     * Write the slots of a mapped file to the device, nothing happens for a direct buffer.
+     */
+    public void force(){
+        if (this.bytes instanceof MappedByteBuffer){
+            ((MappedByteBuffer) this.bytes).force();
+        }
+    }
+
+    /**
+     * Force a mapped file and close it. The mapping stays readable until it is garbage collected.
+     */
+    public void close() throws IOException {
+        this.force();
+        if (this.file != null){
+            this.file.close();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package simple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Optional pass over the bytecode generated by the Parser, before ByteCodeInterpreter.run.
+ * Every statement is a run of LOAD/LOADI that ends with a STORE, so the pass works one statement at a time:
+ * - constant folding: all LOADI of a statement are summed into one
+ * - constant propagation: a LOAD of a slot holding a known value becomes part of that sum
+ * - common subexpressions: a statement computing the same sum as a slot that still holds it becomes a copy of that slot
+ * - dead stores: a STORE overwritten before any LOAD reads it is removed with its statement
+ * The final memory is the same as running the original code. Code after a STORE out of range is kept as is,
+ * since run() stops there. Runs on LOAD/LOADI/STORE code, before ByteCodeInterpreter.fuse.
+ */
+public class Optimizer {
+
+    private final int memorySize;
+    private final boolean zeroMemory;
+    private int instructionsBefore;
+    private int instructionsAfter;
+    private int constantsFolded;
+    private int commonSubexpressions;
+    private int deadStores;
+
+    /**
+     * @param memorySize memory of the interpreter the code runs on
+     * @param zeroMemory true if the code runs on fresh memory, so every slot starts as the known value 0
+     */
+    public Optimizer(int memorySize, boolean zeroMemory){
+        this.memorySize = memorySize;
+        this.zeroMemory = zeroMemory;
+    }
+
+    /**
+     * Replace the bytecode of the interpreter with its optimized version.
+     */
+    public void optimize(ByteCodeInterpreter interpreter){
+        int[] code = this.optimize(interpreter.code(), interpreter.codeSize);
+        interpreter.setByteCode(code, code.length);
+    }
+
+    /**
+     * Optimize the first size entries of code, a list of opcode/operand pairs.
+     * @return the optimized opcode/operand pairs
+     */
+    public int[] optimize(int[] code, int size){
+        this.instructionsBefore = size / 2;
+        this.constantsFolded = 0;
+        this.commonSubexpressions = 0;
+        this.deadStores = 0;
+        int slots = this.memorySize;
+        for (int i = 0; i < size; i += 2) {
+            if (code[i] == ByteCodeInterpreter.LOAD || code[i] == ByteCodeInterpreter.STORE){
+                slots = Math.max(slots, code[i + 1] + 1);
+            }
+        }
+
+        // what each slot holds: a known value, or else the expression it was computed from
+        boolean[] known = new boolean[slots];
+        int[] value = new int[slots];
+        int[] version = new int[slots];     // bumped on every store, so expressions over an old value never match
+        Expression[] holds = new Expression[slots];
+        HashMap<Expression, Integer> available = new HashMap<>();
+        Arrays.fill(known, this.zeroMemory);
+
+        ArrayList<int[]> statements = new ArrayList<>();
+        int start = 0;
+        int end = size;
+        for (int i = 0; i < size; i += 2) {
+            if (code[i] != ByteCodeInterpreter.STORE){
+                continue;
+            }
+            int address = code[i + 1];
+            if (address >= this.memorySize){
+                // run() stops at this store, keep the rest untouched
+                end = start;
+                break;
+            }
+            // sum the constants and the slots that are not known
+            int constant = 0;
+            int terms = 0;
+            ArrayList<Integer> loads = new ArrayList<>();
+            for (int j = start; j < i; j += 2) {
+                if (code[j] == ByteCodeInterpreter.LOADI){
+                    constant += code[j + 1];
+                    terms++;
+                }
+                else if (code[j] == ByteCodeInterpreter.LOAD){
+                    int slot = code[j + 1];
+                    if (known[slot]){
+                        constant += value[slot];
+                    }
+                    else{
+                        loads.add(slot);
+                    }
+                    terms++;
+                }
+            }
+            // LOADs of known slots and all LOADIs end up in a single LOADI, or none if they sum to 0
+            this.constantsFolded += Math.max(terms - loads.size() - (constant != 0 ? 1 : 0), 0);
+
+            int[] statement;
+            Expression expression = null;
+            if (loads.isEmpty()){
+                statement = constant == 0 ? new int[]{ByteCodeInterpreter.STORE, address}
+                        : new int[]{ByteCodeInterpreter.LOADI, constant, ByteCodeInterpreter.STORE, address};
+            }
+            else{
+                expression = new Expression(constant, loads, version);
+                Integer copy = available.get(expression);
+                if (copy != null && copy == address){
+                    // the slot already holds this value
+                    this.commonSubexpressions++;
+                    start = i + 2;
+                    continue;
+                }
+                if (copy != null && (loads.size() > 1 || constant != 0)){
+                    this.commonSubexpressions++;
+                    statement = new int[]{ByteCodeInterpreter.LOAD, copy, ByteCodeInterpreter.STORE, address};
+                }
+                else{
+                    statement = new int[loads.size() * 2 + (constant == 0 ? 2 : 4)];
+                    int k = 0;
+                    for (int slot : loads) {
+                        statement[k++] = ByteCodeInterpreter.LOAD;
+                        statement[k++] = slot;
+                    }
+                    if (constant != 0){
+                        statement[k++] = ByteCodeInterpreter.LOADI;
+                        statement[k++] = constant;
+                    }
+                    statement[k++] = ByteCodeInterpreter.STORE;
+                    statement[k] = address;
+                }
+            }
+            statements.add(statement);
+
+            // the slot now holds the new value
+            if (holds[address] != null && Integer.valueOf(address).equals(available.get(holds[address]))){
+                available.remove(holds[address]);
+            }
+            version[address]++;
+            known[address] = expression == null;
+            value[address] = constant;
+            holds[address] = expression;
+            if (expression != null){
+                available.putIfAbsent(expression, address);
+            }
+            start = i + 2;
+        }
+        if (end == size){
+            // code after the last store, kept as is
+            end = start;
+        }
+
+        this.removeDeadStores(statements, slots);
+
+        int length = size - end;
+        for (int[] statement : statements) {
+            length += statement == null ? 0 : statement.length;
+        }
+        int[] optimized = new int[length];
+        int k = 0;
+        for (int[] statement : statements) {
+            if (statement != null){
+                System.arraycopy(statement, 0, optimized, k, statement.length);
+                k += statement.length;
+            }
+        }
+        System.arraycopy(code, end, optimized, k, size - end);
+        this.instructionsAfter = length / 2;
+        return optimized;
+    }
+
+    /**
+     * Walk the statements backwards, a store is dead if the same slot is stored again before any LOAD of it.
+     * Dead statements are set to null.
+     */
+    private void removeDeadStores(ArrayList<int[]> statements, int slots){
+        // the last store of each slot is what ends up in memory, and the code kept after the statements may read any slot
+        boolean[] overwritten = new boolean[slots];
+        for (int s = statements.size() - 1; s >= 0; s--) {
+            int[] statement = statements.get(s);
+            int address = statement[statement.length - 1];
+            if (overwritten[address]){
+                statements.set(s, null);
+                this.deadStores++;
+                continue;
+            }
+            overwritten[address] = true;
+            for (int i = 0; i < statement.length - 2; i += 2) {
+                if (statement[i] == ByteCodeInterpreter.LOAD){
+                    overwritten[statement[i + 1]] = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * - get methods for the report of the last optimize call
+     */
+    public int getEliminated(){
+        return this.instructionsBefore - this.instructionsAfter;
+    }
+
+    public int getConstantsFolded(){
+        return this.constantsFolded;
+    }
+
+    public int getCommonSubexpressions(){
+        return this.commonSubexpressions;
+    }
+
+    public int getDeadStores(){
+        return this.deadStores;
+    }
+
+    @Override
+    public String toString() {
+        return "Optimizer{" +
+                "instructions=" + instructionsBefore + " -> " + instructionsAfter +
+                ", eliminated=" + this.getEliminated() +
+                ", constantsFolded=" + constantsFolded +
+                ", commonSubexpressions=" + commonSubexpressions +
+                ", deadStores=" + deadStores +
+                '}';
+    }
+
+    /**
+     * The value of a statement that still has LOADs: a constant plus the loaded slots,
+     * each tagged with the version of the slot it was read from. Order does not matter for a sum.
+     */
+    private static final class Expression {
+        private final int constant;
+        private final long[] terms;
+
+        Expression(int constant, ArrayList<Integer> loads, int[] version){
+            this.constant = constant;
+            this.terms = new long[loads.size()];
+            for (int i = 0; i < this.terms.length; i++) {
+                int slot = loads.get(i);
+                this.terms[i] = ((long) slot << 32) | (version[slot] & 0xffffffffL);
+            }
+            Arrays.sort(this.terms);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Expression)){
+                return false;
+            }
+            Expression other = (Expression) o;
+            return this.constant == other.constant && Arrays.equals(this.terms, other.terms);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.constant + Arrays.hashCode(this.terms);
+        }
+    }
+}
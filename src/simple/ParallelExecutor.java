@@ -0,0 +1,347 @@
+package simple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Runs the statements of a program concurrently where their slots allow it.
+ * Every statement ends with a store and only depends on the statements that wrote the slots it loads,
+ * so the program is split into blocks of consecutive statements and a block waits for the blocks before it that:
+ * - wrote a slot it reads (read after write)
+ * - wrote a slot it writes (write after write)
+ * - read a slot it writes (write after read)
+ * Independent blocks run on a ForkJoinPool and the final memory is the same as ByteCodeInterpreter.run.
+ * Works on plain and fused code. The plan stops before the first store out of range, the interpreter runs the rest.
+ * @see ByteCodeInterpreter#runParallel
+ */
+public class ParallelExecutor {
+
+    public static final int GRAIN = 64;     // statements per block, a single statement is too little work for a task
+
+    /**
+     * The blocks of a program and the dependencies between them, built once and run any number of times.
+     */
+    public static final class Plan {
+        private final int[] code;
+        private final int[] starts;         // code of block b is starts[b]..starts[b + 1]
+        private final int[] dependencies;   // number of blocks each block waits for
+        private final int[] successorStarts;
+        private final int[] successors;     // blocks waiting for block b are successors[successorStarts[b]..successorStarts[b + 1]]
+        private final int end;
+
+        private Plan(int[] code, int[] starts, int[] dependencies, int[] successorStarts, int[] successors, int end){
+            this.code = code;
+            this.starts = starts;
+            this.dependencies = dependencies;
+            this.successorStarts = successorStarts;
+            this.successors = successors;
+            this.end = end;
+        }
+
+        /**
+         * Run the blocks on memory.
+         * @return the accumulator afterwards, still the given one if there were no statements to run
+         */
+        public int run(ForkJoinPool pool, int[] memory, int accumulator){
+            int blocks = this.dependencies.length;
+            if (blocks == 0){
+                return accumulator;
+            }
+            if (blocks == 1){
+                execute(this.code, this.starts[0], this.starts[1], memory, accumulator);
+                return 0;
+            }
+            AtomicIntegerArray pending = new AtomicIntegerArray(this.dependencies);
+            ArrayList<BlockTask> roots = new ArrayList<>();
+            for (int b = 0; b < blocks; b++) {
+                if (this.dependencies[b] == 0){
+                    // only the first statement starts with the accumulator left by earlier code
+                    roots.add(new BlockTask(this, pending, memory, b, b == 0 ? accumulator : 0));
+                }
+            }
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(roots);
+                }
+            });
+            return 0;
+        }
+
+        /**
+         * code position the plan stops at: the end of the code, the statement with a store out of range,
+         * or loads after the last store
+         */
+        public int end(){
+            return this.end;
+        }
+
+        public int blocks(){
+            return this.dependencies.length;
+        }
+    }
+
+    /**
+     * Split the first size entries of code into blocks of grain statements for a memory of memorySize slots.
+     */
+    public static Plan plan(int[] code, int size, int memorySize, int grain){
+        if (grain < 1){
+            throw new IllegalArgumentException("grain must be positive");
+        }
+        // statement boundaries, up to the first store out of range
+        int slots = 0;
+        int[] starts = new int[16];
+        int blocks = 0;
+        int statements = 0;
+        int start = 0;
+        int end = 0;
+        for (int pc = 0; pc < size; pc += ByteCodeInterpreter.width(code, pc)) {
+            int address = storeAddress(code, pc);
+            if (address < 0){
+                continue;
+            }
+            if (address >= memorySize){
+                break;
+            }
+            if (statements++ % grain == 0){
+                if (blocks + 1 >= starts.length){
+                    starts = Arrays.copyOf(starts, starts.length * 2);
+                }
+                starts[blocks++] = start;
+            }
+            start = pc + ByteCodeInterpreter.width(code, pc);
+            end = start;
+        }
+        starts[blocks] = end;
+        starts = Arrays.copyOf(starts, blocks + 1);
+        for (int pc = 0; pc < end; pc += ByteCodeInterpreter.width(code, pc)) {
+            slots = Math.max(slots, maxSlot(code, pc) + 1);
+        }
+
+        // edges to earlier blocks, from the last writer and the readers since of each slot
+        int[] lastWriter = new int[slots];
+        Arrays.fill(lastWriter, -1);
+        int[][] readers = new int[slots][];
+        int[] readerCount = new int[slots];
+        int[] seen = new int[blocks];       // block + 1 if already a predecessor of block
+        int[] dependencies = new int[blocks];
+        int[] edgeFrom = new int[16];
+        int[] edgeTo = new int[16];
+        int edges = 0;
+        int[] predecessors = new int[blocks];   // of the current block, all different
+        for (int b = 0; b < blocks; b++) {
+            int count = 0;
+            for (int pc = starts[b]; pc < starts[b + 1]; pc += ByteCodeInterpreter.width(code, pc)) {
+                int address = storeAddress(code, pc);
+                // loads come first, also for COPY and ADDI
+                for (int i = 0; i < loadCount(code, pc); i++) {
+                    int slot = loadSlot(code, pc, i);
+                    count = addPredecessor(lastWriter[slot], b, seen, predecessors, count);
+                    int n = readerCount[slot];
+                    if (n == 0 || readers[slot][n - 1] != b){
+                        if (readers[slot] == null){
+                            readers[slot] = new int[4];
+                        }
+                        readers[slot] = grow(readers[slot], n);
+                        readers[slot][readerCount[slot]++] = b;
+                    }
+                }
+                if (address >= 0){
+                    count = addPredecessor(lastWriter[address], b, seen, predecessors, count);
+                    for (int i = 0; i < readerCount[address]; i++) {
+                        count = addPredecessor(readers[address][i], b, seen, predecessors, count);
+                    }
+                    lastWriter[address] = b;
+                    readerCount[address] = 0;
+                }
+            }
+            dependencies[b] = count;
+            for (int i = 0; i < count; i++) {
+                edgeFrom = grow(edgeFrom, edges);
+                edgeTo = grow(edgeTo, edges);
+                edgeFrom[edges] = predecessors[i];
+                edgeTo[edges++] = b;
+            }
+        }
+
+        // successors of each block, grouped by block
+        int[] successorStarts = new int[blocks + 1];
+        for (int e = 0; e < edges; e++) {
+            successorStarts[edgeFrom[e] + 1]++;
+        }
+        for (int b = 0; b < blocks; b++) {
+            successorStarts[b + 1] += successorStarts[b];
+        }
+        int[] successors = new int[edges];
+        int[] next = Arrays.copyOf(successorStarts, blocks);
+        for (int e = 0; e < edges; e++) {
+            successors[next[edgeFrom[e]]++] = edgeTo[e];
+        }
+        return new Plan(Arrays.copyOf(code, end), starts, dependencies, successorStarts, successors, end);
+    }
+
+    private static int addPredecessor(int block, int b, int[] seen, int[] predecessors, int count){
+        if (block < 0 || block == b || seen[block] == b + 1){
+            return count;
+        }
+        seen[block] = b + 1;
+        predecessors[count] = block;
+        return count + 1;
+    }
+
+    /**
+     * array with room for index
+     */
+    private static int[] grow(int[] array, int index){
+        return index < array.length ? array : Arrays.copyOf(array, array.length * 2);
+    }
+
+    /**
+     * the slot written by the instruction at pc, or -1 if it does not store
+     */
+    private static int storeAddress(int[] code, int pc){
+        switch (code[pc]){
+            case ByteCodeInterpreter.STORE:
+            case ByteCodeInterpreter.ADDI:
+                return code[pc + 1];
+            case ByteCodeInterpreter.STOREI:
+            case ByteCodeInterpreter.COPY:
+                return code[pc + 2];
+            default:
+                return -1;
+        }
+    }
+
+    private static int loadCount(int[] code, int pc){
+        switch (code[pc]){
+            case ByteCodeInterpreter.LOAD:
+            case ByteCodeInterpreter.COPY:
+            case ByteCodeInterpreter.ADDI:
+                return 1;
+            case ByteCodeInterpreter.LOADN:
+                return code[pc + 1];
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * the i-th slot read by the instruction at pc
+     */
+    private static int loadSlot(int[] code, int pc, int i){
+        return code[pc] == ByteCodeInterpreter.LOADN ? code[pc + 2 + i] : code[pc + 1];
+    }
+
+    private static int maxSlot(int[] code, int pc){
+        int slot = storeAddress(code, pc);
+        for (int i = 0; i < loadCount(code, pc); i++) {
+            slot = Math.max(slot, loadSlot(code, pc, i));
+        }
+        return slot;
+    }
+
+    /**
+     * Interpret code from..to, every store is known to be in range.
+     */
+    private static void execute(int[] code, int from, int to, int[] memory, int accumulator){
+        int pc = from;
+        while (pc < to) {
+            switch (code[pc]){
+                case ByteCodeInterpreter.LOAD:
+                    accumulator += memory[code[pc + 1]];
+                    pc += 2;
+                    break;
+                case ByteCodeInterpreter.LOADI:
+                    accumulator += code[pc + 1];
+                    pc += 2;
+                    break;
+                case ByteCodeInterpreter.STORE:
+                    memory[code[pc + 1]] = accumulator;
+                    accumulator = 0;
+                    pc += 2;
+                    break;
+                case ByteCodeInterpreter.STOREI:
+                    memory[code[pc + 2]] = accumulator + code[pc + 1];
+                    accumulator = 0;
+                    pc += 3;
+                    break;
+                case ByteCodeInterpreter.COPY:
+                    memory[code[pc + 2]] = accumulator + memory[code[pc + 1]];
+                    accumulator = 0;
+                    pc += 3;
+                    break;
+                case ByteCodeInterpreter.ADDI:
+                    memory[code[pc + 1]] = accumulator + memory[code[pc + 1]] + code[pc + 2];
+                    accumulator = 0;
+                    pc += 3;
+                    break;
+                case ByteCodeInterpreter.LOADN:
+                    int last = pc + 2 + code[pc + 1];
+                    for (int i = pc + 2; i < last; i++) {
+                        accumulator += memory[code[i]];
+                    }
+                    pc = last;
+                    break;
+                default:
+                    pc += 2;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Runs a block, then the blocks it was the last dependency of.
+     * One of those continues in the same task, so a chain of dependent blocks is a loop and not a recursion.
+     */
+    private static final class BlockTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Plan plan;
+        private final AtomicIntegerArray pending;
+        private final int[] memory;
+        private final int block;
+        private final int accumulator;
+
+        BlockTask(Plan plan, AtomicIntegerArray pending, int[] memory, int block, int accumulator){
+            this.plan = plan;
+            this.pending = pending;
+            this.memory = memory;
+            this.block = block;
+            this.accumulator = accumulator;
+        }
+
+        @Override
+        protected void compute() {
+            Plan plan = this.plan;
+            ArrayList<BlockTask> forked = new ArrayList<>();
+            int block = this.block;
+            int accumulator = this.accumulator;
+            while (block >= 0) {
+                execute(plan.code, plan.starts[block], plan.starts[block + 1], this.memory, accumulator);
+                accumulator = 0;
+                int next = -1;
+                for (int i = plan.successorStarts[block]; i < plan.successorStarts[block + 1]; i++) {
+                    int successor = plan.successors[i];
+                    if (this.pending.decrementAndGet(successor) != 0){
+                        continue;
+                    }
+                    if (next < 0){
+                        next = successor;
+                    }
+                    else{
+                        BlockTask task = new BlockTask(plan, this.pending, this.memory, successor, 0);
+                        task.fork();
+                        forked.add(task);
+                    }
+                }
+                block = next;
+            }
+            for (BlockTask task : forked) {
+                task.join();
+            }
+        }
+    }
+}
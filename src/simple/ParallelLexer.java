@@ -0,0 +1,250 @@
+package simple;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Tokenize a large input on a ForkJoinPool, with the same tokens as Lexer.tokenize.
+ * The input is cut into chunks, preferably at whitespace, each chunk is scanned by its own task,
+ * and the chunk results are joined in order. When a chunk has to be cut inside an identifier or an integer
+ * the two halves are stitched back together while joining.
+ * Files are mapped chunk by chunk, so chunks start decoding without reading the whole file first.
+ * @see Lexer
+ */
+public class ParallelLexer {
+
+    public static final int CHUNK_SIZE = 1 << 22;
+    private static final int SEARCH = 1 << 12;     // how far to look for whitespace around a cut
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public ParallelLexer(){
+        this(ForkJoinPool.commonPool(), CHUNK_SIZE);
+    }
+
+    /**
+     * @param pool runs the chunk tasks
+     * @param chunkSize approximate bytes (or chars for a String) per task
+     */
+    public ParallelLexer(ForkJoinPool pool, int chunkSize){
+        if (chunkSize < 1){
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Tokenize a file, decoded with the platform charset like Lexer does.
+     * Charsets where whitespace may be part of a multi-byte char cannot be cut safely and are scanned by one Lexer.
+     */
+    public TokenBuffer tokenize(Path file) throws IOException {
+        Charset charset = Charset.defaultCharset();
+        if (!ByteScanner.supports(charset)){
+            return new Lexer(file).tokenize();
+        }
+        Metrics.LexEvent event = Metrics.beginLex();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ArrayList<Long> cuts = new ArrayList<>();
+            cuts.add(0L);
+            ByteBuffer around = ByteBuffer.allocate(SEARCH);
+            long start = 0;
+            while (size - start > this.chunkSize) {
+                start = this.cut(channel, start + this.chunkSize, around);
+                cuts.add(start);
+            }
+            cuts.add(size);
+
+            Chunk[] chunks = new Chunk[cuts.size() - 1];
+            this.pool.invoke(new ScanTask(chunks, 0, chunks.length, i -> {
+                ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, cuts.get(i), cuts.get(i + 1) - cuts.get(i));
+                return charset.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                        .decode(bytes);
+            }));
+            TokenBuffer tokens = join(chunks);
+            Metrics.lexed(event, size, tokens.size());
+            return tokens;
+        }
+    }
+
+    /**
+     * Tokenize text that is already in memory, chunks are views of the String.
+     */
+    public TokenBuffer tokenize(String source){
+        Metrics.LexEvent event = Metrics.beginLex();
+        ArrayList<Integer> cuts = new ArrayList<>();
+        cuts.add(0);
+        int start = 0;
+        while (source.length() - start > this.chunkSize) {
+            int target = start + this.chunkSize;
+            int cut = target;
+            int limit = Math.min(source.length(), target + SEARCH);
+            while (cut < limit && !isWhitespace(source.charAt(cut))){
+                cut++;
+            }
+            if (cut == limit){
+                // no whitespace close by, cut anyway but keep surrogate pairs together
+                cut = Character.isLowSurrogate(source.charAt(target)) ? target + 1 : target;
+            }
+            start = cut;
+            cuts.add(start);
+        }
+        cuts.add(source.length());
+
+        Chunk[] chunks = new Chunk[cuts.size() - 1];
+        this.pool.invoke(new ScanTask(chunks, 0, chunks.length, i -> CharBuffer.wrap(source, cuts.get(i), cuts.get(i + 1))));
+        TokenBuffer tokens = join(chunks);
+        Metrics.lexed(event, source.length(), tokens.size());
+        return tokens;
+    }
+
+    /**
+     * Find where to end the chunk that should end at target: the next whitespace byte if there is one close by,
+     * else target moved forward past continuation bytes to the start of the next UTF-8 char.
+     */
+    private long cut(FileChannel channel, long target, ByteBuffer around) throws IOException {
+        around.clear();
+        channel.read(around, target);
+        around.flip();
+        for (int i = 0; i < around.limit(); i++) {
+            if (isWhitespace((char) around.get(i))){
+                return target + i;
+            }
+        }
+        // no whitespace close by, continuation bytes look like 10xxxxxx
+        int forward = 0;
+        while (forward < 3 && forward < around.limit() && (around.get(forward) & 0xC0) == 0x80){
+            forward++;
+        }
+        return target + forward;
+    }
+
+    private static boolean isWhitespace(char c){
+        return c == ' ' || c == '\n' || c == '\t';
+    }
+
+    /**
+     * Join the chunks in order. A chunk ending inside an identifier or integer is followed by one starting inside it,
+     * their tokens are merged the way a single Lexer would have scanned them:
+     * - an ID continues over the letters and digits at the start of the next chunk, an INT and the ID right after it
+     * - an INT continues over an INT at the start of the next chunk
+     */
+    private static TokenBuffer join(Chunk[] chunks){
+        int tokens = 1;
+        int chars = 0;
+        for (Chunk chunk : chunks) {
+            tokens += chunk.tokens.size();
+            chars += chunk.chars;
+        }
+        TokenBuffer joined = new TokenBuffer(1);
+        joined.ensureCapacity(tokens, chars);
+        boolean openEnd = false;    // the last token of joined may go on in the next chunk
+        for (Chunk chunk : chunks) {
+            TokenBuffer next = chunk.tokens;
+            int from = 0;
+            if (openEnd && chunk.openStart && joined.size() > 0){
+                int last = joined.kind(joined.size() - 1);
+                if (last == TokenBuffer.ID){
+                    joined.extendLast(next, from++);
+                    if (chunk.intThenId){
+                        joined.extendLast(next, from++);
+                    }
+                }
+                else if (last == TokenBuffer.INT && next.kind(0) == TokenBuffer.INT){
+                    joined.extendLast(next, from++);
+                }
+            }
+            joined.append(next, from);
+            // a chunk made of a single open token keeps the joined token open
+            openEnd = chunk.openEnd || (openEnd && from > 0 && from == next.size() && chunk.openStart);
+        }
+        joined.add(TokenBuffer.EOF);
+        return joined;
+    }
+
+    /**
+     * Tokens of one chunk, and whether its first and last tokens touch the edges of the chunk.
+     */
+    private static final class Chunk {
+        TokenBuffer tokens;
+        int chars;
+        boolean openStart;      // starts with an ID or INT at the first char
+        boolean intThenId;      // and that INT is directly followed by an ID
+        boolean openEnd;        // the last char is a letter or digit
+    }
+
+    private interface ChunkSource {
+        CharBuffer chars(int index) throws CharacterCodingException, IOException;
+    }
+
+    /**
+     * Scan chunks from..to, split in halves until a single chunk is left.
+     */
+    private static final class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Chunk[] chunks;
+        private final int from;
+        private final int to;
+        private final ChunkSource source;
+
+        ScanTask(Chunk[] chunks, int from, int to, ChunkSource source){
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.source = source;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > 1){
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new ScanTask(this.chunks, this.from, middle, this.source),
+                        new ScanTask(this.chunks, middle, this.to, this.source));
+                return;
+            }
+            if (this.to == this.from){
+                return;
+            }
+            CharBuffer in;
+            try {
+                in = this.source.chars(this.from);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read chunk " + this.from, e);
+            }
+            Chunk chunk = new Chunk();
+            int length = in.remaining();
+            chunk.chars = length;
+            chunk.tokens = new TokenBuffer(length / 4 + 16);
+            if (length > 0){
+                char first = in.get(in.position());
+                char last = in.get(in.position() + length - 1);
+                chunk.openStart = Character.isLetterOrDigit(first);
+                chunk.openEnd = Character.isLetterOrDigit(last);
+                if (chunk.openStart && Character.isDigit(first)){
+                    int i = in.position();
+                    while (i < in.limit() && Character.isDigit(in.get(i))){
+                        i++;
+                    }
+                    chunk.intThenId = i < in.limit() && Character.isLetter(in.get(i));
+                }
+            }
+            Lexer.scanChunk(in, chunk.tokens);
+            this.chunks[this.from] = chunk;
+        }
+    }
+}
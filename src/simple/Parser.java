@@ -0,0 +1,594 @@
+package simple;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.file.Path;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The Parser’s job is to determine if a given code file is syntactically correct and report either “valid program” or a particular error message.
+ * For instance, the code:
+ * x12=17+43
+ * a = x12+35+1
+ * is syntactically correct for the SIMPLE language so the parser should report, “valid program”. The code:
+ * 17=x+3
+ * is not valid and the parser should report, “Expecting Identifier on line 1”.
+ * The Parser should find and report the following errors:
+ * - Expecting identifier
+ * - Expecting assignment operator
+ * - Expecting identifier or integer
+ * - Expecting identifier or add operator
+ * - Identifier not defined
+ * The Parser should not access the input stream directly, but should instead create a Lexer and call getAllTokens, then loop through those Tokens.
+ * Use a *recursive descent parsing* scheme: define a *ParseX* method for each particular “part of speech”.
+ * For example, parseAssignOp will be called when you are expecting a token of type “AssignOp”.
+ */
+public class Parser {
+
+    TokenBuffer tokens;
+    IdTable idTable;
+    Ast ast;                                // statements parsed so far, the bytecode is generated from it
+    private int curIndex;
+    private boolean error = false;
+    private int errorLine = 0;
+    Lexer lexer;
+    ByteCodeInterpreter interpreter;
+    private int memoryIndex = 0;            // slot of the identifier being assigned
+    private int assignNode;                 // ASSIGN node of the statement being parsed
+    private boolean streaming = false;      // pull tokens from the lexer on demand
+    private boolean lexerDone = false;
+    private boolean optimize = false;
+    private Optimizer optimizer;            // made for the final memory size when the program is valid
+    private boolean superinstructions = false;
+    private ForkJoinPool pool;              // null runs the program sequentially, see setParallel
+    private boolean quiet = false;          // keep messages from System.out, see setQuiet
+    private String errorMessage;            // e.g. "Error: Identifier not defined, Line 2"
+    private String errorKind;               // e.g. "Identifier not defined", for Metrics
+    private OffHeapMemory memory;           // null keeps memory on the heap, see setMemory
+    private StatementCache cache;           // compiled statements shared with other Parsers, see setStatementCache
+    private final StatementCache.Span span = new StatementCache.Span();     // tokens of the statement being parsed
+    private boolean cacheable;              // span is a well formed statement, cached once it is parsed
+    private final IdentityHashMap<StatementCache.Statement, int[]> linked = new IdentityHashMap<>();    // target and terms of each cached statement in this program
+    private DemandEvaluator evaluator;      // made by the first evaluate
+    private Pipeline pipeline;              // takes tokens from and hands code to other threads, see Pipeline
+
+    /**
+     * - A constructor which creates a Lexer and places the results of “tokenize” into a data member
+     */
+    public Parser(String file){
+        this.lexer = new Lexer(file);
+        this.tokens = this.lexer.tokenize();
+        this.idTable = new IdTable();
+        this.ast = new Ast();
+        this.curIndex = 0;
+        this.interpreter = new ByteCodeInterpreter(0);     // grows with the IdTable
+    }
+
+    /**
+     * A Parser without a program, give it one with reset.
+     */
+    public Parser(){
+        this.tokens = new TokenBuffer();
+        this.idTable = new IdTable();
+        this.ast = new Ast();
+        this.interpreter = new ByteCodeInterpreter(0);
+    }
+
+    /**
+     * A streaming Parser for a file, see Parser(Lexer).
+     */
+    public Parser(Path file) throws IOException {
+        this(new Lexer(file));
+    }
+
+    /**
+     * A streaming Parser: tokens are pulled from the lexer with nextToken as they are needed,
+     * and the bytecode of each statement is run and dropped as soon as the statement is complete.
+     * Memory then grows with the longest statement instead of the whole program.
+     * Unlike the buffered Parser, statements before a syntax error have already been executed.
+     */
+    public Parser(Lexer lexer){
+        this.lexer = lexer;
+        this.tokens = new TokenBuffer();
+        this.streaming = true;
+        this.idTable = new IdTable();
+        this.ast = new Ast();
+        this.curIndex = 0;
+        this.interpreter = new ByteCodeInterpreter(0);     // grows with the IdTable
+    }
+
+    /**
+     * A streaming Parser for the parse stage of a Pipeline: tokens come from the lex thread
+     * and the code of each statement is handed to the execute thread instead of being run.
+     */
+    Parser(Pipeline pipeline){
+        this.pipeline = pipeline;
+        this.tokens = new TokenBuffer();
+        this.streaming = true;
+        this.idTable = new IdTable();
+        this.ast = new Ast();
+        this.interpreter = new ByteCodeInterpreter(0);
+    }
+
+    /**
+     * Drive the process and parses an entire program.
+     * Call parseAssignment within a loop.
+     */
+    public void parseProgram() {
+        if (!this.parseStatements() || this.streaming){
+            return;
+        }
+        if (this.pool != null){
+            this.interpreter.runParallel(this.pool);
+        }
+        else{
+            this.interpreter.run();
+        }
+    }
+
+    /**
+     * Parse the entire program like parseProgram, with the Optimizer and superinstructions if set, but do not run it.
+     * The bytecode and IdTable are then ready to be run or saved, see ProgramCache.
+     * @return true if the program is valid
+     */
+    public boolean compile(){
+        return this.parseStatements() && !this.error;
+    }
+
+    /**
+     * the parseProgram loop, @return false if it stopped at an invalid statement
+     */
+    private boolean parseStatements(){
+        Metrics.ParseEvent event = Metrics.beginParse();
+        while (this.fill(this.curIndex)){
+            this.errorLine += 1;    // each loop is a new line
+            if (this.error){
+                Metrics.parsed(event, this.errorLine - 1, this.errorKind);
+                this.print("Invalid Program");
+                return false;
+            }
+            if (this.streaming){
+                // previous statements are done, only keep the lookahead
+                this.tokens.discard(this.curIndex);
+                this.curIndex = 0;
+                this.ast.clear();
+            }
+            this.parseAssignment();
+            this.ast.generateNew(this.interpreter);
+            if (this.streaming && !this.error){
+                if (this.pipeline != null){
+                    this.pipeline.publish(this.interpreter, this.idTable.size());
+                }
+                else{
+                    this.interpreter.runAndClear();
+                }
+            }
+        }
+        Metrics.parsed(event, this.errorLine, this.errorKind);
+        if (this.pipeline != null){
+            // a failure of the lex or execute stage is thrown instead of reporting a valid program
+            this.pipeline.finish();
+        }
+        this.print("Valid Program");
+        if (!this.streaming){
+            if (this.optimize){
+                this.optimizer = new Optimizer(this.interpreter.getMemorySize(), this.memory == null);
+                this.optimizer.optimize(this.interpreter);
+                this.print(this.optimizer.toString());
+            }
+            if (this.superinstructions){
+                this.interpreter.fuse();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse another program with the same Parser, reusing the arrays of its tokens, IdTable and interpreter.
+     * Unlike the constructor, source is the text of the program and not a file name.
+     * Settings such as setOptimize and setQuiet are kept, the Parser is buffered afterwards even if it was streaming.
+     */
+    public void reset(String source){
+        Metrics.LexEvent event = Metrics.beginLex();
+        this.tokens.clear();
+        Lexer.scanChunk(CharBuffer.wrap(source), this.tokens);
+        this.tokens.add(TokenBuffer.EOF);
+        Metrics.lexed(event, source.length(), this.tokens.size());
+        this.lexer = null;
+        this.streaming = false;
+        this.lexerDone = false;
+        this.idTable.clear();
+        this.ast.clear();
+        this.linked.clear();
+        this.interpreter.reset();
+        this.optimizer = null;
+        this.evaluator = null;
+        this.curIndex = 0;
+        this.error = false;
+        this.errorLine = 0;
+        this.errorMessage = null;
+        this.errorKind = null;
+    }
+
+    /**
+     * Do not print errors, "Valid Program" or the Optimizer to System.out, e.g. when running many programs.
+     * The error is still available from getError.
+     */
+    public void setQuiet(boolean quiet){
+        this.quiet = quiet;
+    }
+
+    /**
+     * Keep the memory of the program off the Java heap, see OffHeapMemory. Call it before the program is parsed.
+     * A mapped file may hold the slots of an earlier run, so the Optimizer no longer assumes they start at 0.
+     */
+    public void setMemory(OffHeapMemory memory){
+        this.memory = memory;
+        this.interpreter = new ByteCodeInterpreter(0, memory);
+    }
+
+    /**
+     * Link statements found in cache instead of parsing them, and add the statements parsed to it.
+     * The same cache can be shared by Parsers on different threads. null parses every statement again.
+     */
+    public void setStatementCache(StatementCache cache){
+        this.cache = cache;
+    }
+
+    /**
+     * Run the Optimizer on the bytecode of a valid program before it is interpreted.
+     * The program runs on fresh memory, so every slot starts as the known value 0.
+     * Has no effect on a streaming Parser, which runs each statement as soon as it is parsed.
+     */
+    public void setOptimize(boolean optimize){
+        this.optimize = optimize;
+    }
+
+    /**
+     * Rewrite the bytecode of a valid program with superinstructions before it is interpreted, see ByteCodeInterpreter.fuse.
+     * Like setOptimize, has no effect on a streaming Parser.
+     */
+    public void setSuperinstructions(boolean superinstructions){
+        this.superinstructions = superinstructions;
+    }
+
+    /**
+     * Run independent statements of a valid program concurrently on pool, see ByteCodeInterpreter.runParallel.
+     * null runs it sequentially again. Like setOptimize, has no effect on a streaming Parser.
+     */
+    public void setParallel(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    /**
+     * Parse a single assignment statement into an ASSIGN node of the Ast.
+     * Call parseId, parseAssignmentOp, and parseExpression.
+     */
+    public void parseAssignment() {
+         // store the final value to current ID memory address, still the last one if the identifier is missing
+         this.assignNode = this.ast.addAssign(this.memoryIndex);
+         if (this.cache != null && this.linkCached()){
+             return;
+         }
+         this.parseId();
+         this.parseAssignOp();
+         this.parseExpression();
+         if (this.cacheable && !this.error){
+             this.cacheStatement();
+         }
+    }
+
+    /**
+     * Find the statement at curIndex in the cache and add its terms to the Ast, with the slots of this program.
+     * The statement must be complete and well formed, an ID or INT right after it is a syntax error and is parsed as usual.
+     * @return false if it has to be parsed, cacheable is then set if the statement can be cached
+     */
+    private boolean linkCached(){
+        this.cacheable = false;
+        int start = this.curIndex;
+        if (!this.fill(start + 2) || this.tokens.kind(start) != TokenBuffer.ID || this.tokens.kind(start + 1) != TokenBuffer.ASSMT
+                || !this.isTerm(start + 2)){
+            return false;
+        }
+        int terms = 1;
+        int i = start + 3;
+        while (this.fill(i + 1) && this.tokens.kind(i) == TokenBuffer.PLUS && this.isTerm(i + 1)){
+            terms++;
+            i += 2;
+        }
+        if (this.fill(i) && (this.tokens.kind(i) == TokenBuffer.INT || this.tokens.kind(i) == TokenBuffer.PLUS)){
+            return false;
+        }
+        this.cacheable = true;
+        this.span.set(this.tokens, start, terms);
+        StatementCache.Statement statement = this.cache.get(this.span);
+        if (statement == null){
+            return false;
+        }
+        // the names are those of the key, so a statement linked once in this program has the same slots every time
+        int[] slots = this.linked.get(statement);
+        if (slots == null){
+            slots = this.link(statement, start);
+            if (slots == null){
+                this.cacheable = false;     // parsed to report the error, which is not cached
+                return false;
+            }
+            this.linked.put(statement, slots);
+        }
+        this.memoryIndex = slots[0];
+        this.ast.setOperand(this.assignNode, this.memoryIndex);
+        for (int t = 0; t < statement.terms(); t++) {
+            this.ast.addTerm(this.assignNode, statement.kinds[t], slots[t + 1]);
+        }
+        // where parseExpression would stop, past the EOF like it
+        this.curIndex = i;
+        if (!this.fill(i) || this.tokens.kind(i) == TokenBuffer.EOF){
+            this.curIndex++;
+        }
+        return true;
+    }
+
+    /**
+     * Resolve the identifiers of a cached statement starting at token start against the IdTable.
+     * The target is added before the terms are looked up, as parseId does.
+     * @return the target's slot, then the slot or value of each term, or null if a term is not defined
+     */
+    private int[] link(StatementCache.Statement statement, int start){
+        char[] text = this.tokens.text();
+        int[] slots = new int[statement.terms() + 1];
+        slots[0] = this.idTable.add(text, this.tokens.offset(start), this.tokens.length(start), this.tokens.hash(start));
+        this.interpreter.ensureMemory(this.idTable.size());
+        for (int t = 0, token = start + 2; t < statement.terms(); t++, token += 2) {
+            if (statement.kinds[t] == Ast.ID){
+                slots[t + 1] = this.idTable.getAddress(text, this.tokens.offset(token), this.tokens.length(token),
+                        this.tokens.hash(token));
+                if (slots[t + 1] == -1){
+                    return null;
+                }
+            }
+            else{
+                slots[t + 1] = statement.values[t];
+            }
+        }
+        return slots;
+    }
+
+    private boolean isTerm(int i){
+        return this.tokens.kind(i) == TokenBuffer.ID || this.tokens.kind(i) == TokenBuffer.INT;
+    }
+
+    /**
+     * add the statement just parsed to the cache
+     */
+    private void cacheStatement(){
+        int terms = this.ast.children(this.assignNode);
+        byte[] kinds = new byte[terms];
+        int[] values = new int[terms];
+        for (int t = 0; t < terms; t++) {
+            int node = this.assignNode + 1 + t;
+            kinds[t] = (byte) this.ast.kind(node);
+            if (kinds[t] == Ast.INT){
+                values[t] = this.ast.operand(node);
+            }
+        }
+        this.cache.put(this.span, new StatementCache.Statement(kinds, values));
+        this.cacheable = false;
+    }
+
+    /**
+     * Parse a single identifier
+     */
+    public void parseId(){
+        // Must be on LEFT side, just add to table
+        int curToken = this.nextToken();
+        if (this.tokens.kind(curToken) != TokenBuffer.ID){
+            this.syntaxError("Expecting identifier");
+        }
+        else{
+            // add token value to idTable, one memory address per distinct ID
+            this.memoryIndex = this.idTable.add(this.tokens.text(), this.tokens.offset(curToken), this.tokens.length(curToken),
+                    this.tokens.hash(curToken));
+            this.ast.setOperand(this.assignNode, this.memoryIndex);
+            this.interpreter.ensureMemory(this.idTable.size());
+        }
+    }
+
+    /**
+     * Parses a single assignment operator
+     */
+    public void parseAssignOp(){
+        if (this.error){return;}
+        int nextKind = this.peek();  // call peek first, index not added yet
+        int curToken = this.nextToken();
+        if (this.tokens.kind(curToken) != TokenBuffer.ASSMT){
+            this.syntaxError("Expecting assignment operator");
+            return;
+        }
+        if (nextKind != TokenBuffer.ID && nextKind != TokenBuffer.INT){
+            this.syntaxError("Expecting identifier or integer");
+        }
+    }
+
+    /**
+     * Parse an expression. i.e., the right-hand-side of an assignment.
+     * Note that expressions can include an unlimited number of “+” signs, e.g., “Y+3+4”
+     * Each term is one pass of a loop, so the length of an expression is not limited by the stack.
+     */
+    public void parseExpression(){
+        while (!this.error){
+            // ID, ASSMT, INT, PLUS, EOF
+            int nextKind = this.peek();
+            int curToken = this.nextToken();
+            int curKind = this.tokens.kind(curToken);
+            if (curKind == TokenBuffer.ID || curKind == TokenBuffer.INT){
+                if (curKind == TokenBuffer.ID){
+                    // Check IdTable, it also holds the memory address of the ID
+                    int address = this.idTable.getAddress(this.tokens.text(), this.tokens.offset(curToken), this.tokens.length(curToken),
+                            this.tokens.hash(curToken));
+                    if (address == -1){
+                        this.syntaxError("Identifier not defined");
+                        return;
+                    }
+                    // a term adding the value at ID address's to the accumulator
+                    this.ast.addTerm(this.assignNode, Ast.ID, address);
+                }
+                else{
+                    int value;
+                    try {
+                        value = this.tokens.intValue(curToken);
+                    } catch (NumberFormatException e) {
+                        this.syntaxError("Integer out of range");
+                        return;
+                    }
+                    // a term adding the value of operand INT to the accumulator
+                    this.ast.addTerm(this.assignNode, Ast.INT, value);
+                }
+                if (nextKind == TokenBuffer.PLUS){
+                    continue;   // keep parsing
+                }
+                if (nextKind == TokenBuffer.INT){
+                    this.syntaxError("Expecting identifier or add operator");
+                }
+                else if (nextKind == TokenBuffer.EOF){
+                    this.curIndex ++;  // force into next loop
+                }
+                // if nextToken is ID, do nothing, normally finish this func and let the loop do the rest.
+                return;
+            }
+            if (curKind != TokenBuffer.PLUS){
+                return;
+            }
+            if (nextKind != TokenBuffer.ID && nextKind != TokenBuffer.INT){
+                this.syntaxError("Expecting identifier or integer");
+            }
+            // either ID or INT, keep parsing
+        }
+    }
+
+
+    /**
+     * report a syntax error on the current line
+     */
+    private void syntaxError(String message){
+        this.error = true;
+        this.errorKind = message;
+        this.errorMessage = "Error: " + message + ", Line " + this.errorLine;
+        this.print(this.errorMessage);
+    }
+
+    private void print(String message){
+        if (!this.quiet){
+            System.out.println(message);
+        }
+    }
+
+    /**
+     * Get the next token in the list and increments the index
+     * @return index of the token in tokens
+     */
+    public int nextToken(){
+        if (!this.fill(this.curIndex)){
+            throw new IndexOutOfBoundsException("Index " + this.curIndex + " out of bounds for length " + this.tokens.size());
+        }
+        return this.curIndex++;
+    }
+
+    /**
+     * kind of the token after the next one
+     */
+    private int peek(){
+        if (this.fill(this.curIndex + 1)){
+            return this.tokens.kind(this.curIndex + 1);
+        }
+        else{
+            return TokenBuffer.EOF;
+        }
+    }
+
+
+    /**
+     * Make sure the token at index i has been read, pulling from the lexer in streaming mode.
+     * @return false if the program has fewer tokens
+     */
+    private boolean fill(int i){
+        while (this.streaming && !this.lexerDone && i >= this.tokens.size()){
+            if (this.pipeline != null){
+                this.lexerDone = !this.pipeline.takeTokens(this.tokens);
+                continue;
+            }
+            try {
+                this.lexerDone = this.lexer.nextToken(this.tokens) == TokenBuffer.EOF;
+            } catch (Exception e) {
+                this.lexerDone = true;
+            }
+        }
+        return i < this.tokens.size();
+    }
+
+
+    /**
+     * - get methods providing public access to the interpreter holding the generated bytecode
+     */
+    public ByteCodeInterpreter getInterpreter(){
+        return this.interpreter;
+    }
+
+    /**
+     * the statements of the program, only the last one in a streaming Parser
+     */
+    public Ast getAst(){
+        return this.ast;
+    }
+
+    public IdTable getIdTable(){
+        return this.idTable;
+    }
+
+    /**
+     * The value identifier name has after the program, computing only the statements it depends on, see DemandEvaluator.
+     * Parse the program first without running it, e.g. with compile. Values are kept for later queries.
+     * @return the value, or null if name is not an identifier of the program
+     */
+    public Integer evaluate(String name){
+        if (this.evaluator == null){
+            if (this.streaming){
+                throw new IllegalStateException("a streaming Parser does not keep the program");
+            }
+            if (this.error){
+                throw new IllegalStateException("the program is not valid: " + this.errorMessage);
+            }
+            this.evaluator = new DemandEvaluator(this.ast, this.idTable);
+        }
+        return this.evaluator.evaluate(name);
+    }
+
+    /**
+     * Value of the identifier name, or null if it is not defined, see ByteCodeInterpreter.read.
+     * It can be read while the program runs on another thread, but the IdTable must not grow meanwhile:
+     * only call it from another thread once the program is parsed, e.g. while a buffered Parser runs it.
+     */
+    public Integer getValue(String name){
+        int address = this.idTable.getAddress(name);
+        return address == -1 ? null : this.interpreter.read(address);
+    }
+
+    /**
+     * the syntax error the program stopped at, null if there was none
+     */
+    public String getError(){
+        return this.errorMessage;
+    }
+
+    /**
+     * Print out the token list and id table
+     */
+    public String toString(){
+        return "Token List: " + this.tokens + "\n"
+                + "Symbol Table: " + this.idTable  + "\n"
+                + "ByteCode: " + this.interpreter.getByteCode() + "\n"
+                + "Memory: " + this.interpreter.getMemory();
+    }
+}
+
+
@@ -0,0 +1,272 @@
+package simple;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Lexes, parses and executes a file on three threads at once, so a program starts running while it is still being read.
+ * - the lex thread scans tokens and packs them into a ring of ints: kind | length << 3, then the text, two chars per int
+ * - the calling thread parses them like a streaming Parser and packs the bytecode of each statement into a second ring
+ * - the execute thread adds the code to its ByteCodeInterpreter and runs it
+ * The rings are IntRingBuffers, bounded, so a stage that runs ahead waits for the next one instead of buffering the program.
+ * On a large file the time approaches that of the slowest stage instead of the sum of the three.
+ * Results are those of the streaming Parser: statements before a syntax error have been executed.
+ */
+public class Pipeline {
+
+    static final int RING_SIZE = 1 << 16;
+    private static final int BATCH = 1024;      // tokens or code ints packed before they are put in a ring
+    private static final int MEMORY = -1;       // MEMORY n in the code ring: grow memory to n slots before the code after it
+
+    private final Lexer lexer;
+    private final Parser parser;
+    private final ByteCodeInterpreter interpreter;      // the execute stage's, holds the final memory
+    private final IntRingBuffer tokenRing;
+    private final IntRingBuffer codeRing;
+    // parse stage
+    private int[] tokensIn = new int[BATCH];    // packed tokens taken from the ring, tokensIn[tokenStart..tokenEnd] not unpacked yet
+    private int tokenStart;
+    private int tokenEnd;
+    private int[] codeOut = new int[BATCH * 2];
+    private int codeSize;
+    private int memoryPublished;
+    private Thread lexThread;
+    private Thread executeThread;
+    private volatile Throwable failure;         // an exception of the lex or execute thread
+
+    public Pipeline(Path file) throws IOException {
+        this(new Lexer(file), RING_SIZE);
+    }
+
+    /**
+     * @param ringSize ints each ring holds
+     */
+    Pipeline(Lexer lexer, int ringSize){
+        this.lexer = lexer;
+        this.parser = new Parser(this);
+        this.interpreter = new ByteCodeInterpreter(0);
+        this.tokenRing = new IntRingBuffer(ringSize);
+        this.codeRing = new IntRingBuffer(ringSize);
+    }
+
+    /**
+     * Run the whole program, printing "Valid Program" or the syntax error like parseProgram.
+     * Returns once every statement has been executed.
+     */
+    public void run(){
+        this.lexThread = start("simple-lex", this::lex);
+        this.executeThread = start("simple-execute", this::execute);
+        try {
+            this.parser.parseProgram();
+            // the statements before a syntax error, a valid program has already been finished
+            this.flush();
+        } finally {
+            // the lex thread may still be waiting for room, and the execute thread for code
+            this.tokenRing.cancel();
+            this.codeRing.close();
+            join(this.lexThread);
+            join(this.executeThread);
+        }
+        // a statement that failed after its identifier still adds a slot, as in the streaming Parser
+        this.interpreter.ensureMemory(this.parser.getIdTable().size());
+        this.checkFailure();
+    }
+
+    /**
+     * Called by the parser once every statement of a valid program is parsed, before it prints "Valid Program":
+     * hand over the last code and wait until it has run, so a failure of another stage is thrown instead.
+     */
+    void finish(){
+        this.flush();
+        this.codeRing.close();
+        join(this.executeThread);
+        this.checkFailure();
+    }
+
+    private void checkFailure(){
+        if (this.failure != null){
+            throw new IllegalStateException("pipeline stage failed", this.failure);
+        }
+    }
+
+    private Thread start(String name, Runnable stage){
+        Thread thread = new Thread(() -> {
+            try {
+                stage.run();
+            } catch (Throwable e) {
+                this.failure = e;
+                // nobody is left to wait for, abort since this thread is not the side that may close or cancel
+                this.tokenRing.abort();
+                this.codeRing.abort();
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void join(Thread thread){
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * the lex stage: scan BATCH tokens at a time and put them in the token ring packed
+     */
+    private void lex(){
+        TokenBuffer batch = new TokenBuffer();
+        int[] packed = new int[BATCH * 2];
+        boolean done = false;
+        try {
+            while (!done){
+                batch.clear();
+                while (!done && batch.size() < BATCH){
+                    done = this.lexer.nextToken(batch) == TokenBuffer.EOF;
+                }
+                int size = 0;
+                for (int i = 0; i < batch.size(); i++) {
+                    int length = batch.length(i);
+                    int need = size + 1 + (length + 1) / 2;
+                    if (need > packed.length){
+                        packed = Arrays.copyOf(packed, Math.max(need, packed.length * 2));
+                    }
+                    packed[size++] = batch.kind(i) | length << 3;
+                    char[] text = batch.text();
+                    int offset = batch.offset(i);
+                    for (int j = 0; j < length; j += 2) {
+                        int high = j + 1 < length ? text[offset + j + 1] : 0;
+                        packed[size++] = text[offset + j] | high << 16;
+                    }
+                }
+                if (!this.tokenRing.put(packed, 0, size)){
+                    break;      // the parser stopped at a syntax error
+                }
+            }
+            this.lexer.close();
+        } catch (Exception e) {
+            // not closed, the parser would take it for the end of the program
+            throw new IllegalStateException(e);
+        }
+        this.tokenRing.close();
+    }
+
+    /**
+     * Unpack tokens from the token ring into tokens, waiting for the lex thread if none are there yet. Parse stage only.
+     * @return false once every token has been taken
+     */
+    boolean takeTokens(TokenBuffer tokens){
+        int before = tokens.size();
+        while (true) {
+            int[] in = this.tokensIn;
+            int p = this.tokenStart;
+            while (p < this.tokenEnd) {
+                int length = in[p] >>> 3;
+                int end = p + 1 + (length + 1) / 2;
+                if (end > this.tokenEnd){
+                    break;      // the rest of its text is still in the ring
+                }
+                for (int j = 0; j < length; j++) {
+                    int pair = in[p + 1 + j / 2];
+                    tokens.appendChar((char) (j % 2 == 0 ? pair : pair >>> 16));
+                }
+                tokens.add(in[p] & 7);
+                p = end;
+            }
+            this.tokenStart = p;
+            if (tokens.size() > before){
+                return true;
+            }
+            // keep the partial token at the front, with room for more
+            System.arraycopy(in, p, in, 0, this.tokenEnd - p);
+            this.tokenEnd -= p;
+            this.tokenStart = 0;
+            if (this.tokenEnd == in.length){
+                this.tokensIn = Arrays.copyOf(in, in.length * 2);
+            }
+            int n = this.tokenRing.take(this.tokensIn, this.tokenEnd, this.tokensIn.length - this.tokenEnd);
+            if (n < 0){
+                // aborted by a failed stage rather than the end of the tokens
+                this.checkFailure();
+                return false;
+            }
+            this.tokenEnd += n;
+        }
+    }
+
+    /**
+     * Hand the bytecode of a complete statement to the execute stage and drop it from the parser's interpreter.
+     * @param memorySize slots the code needs, the size of the IdTable
+     */
+    void publish(ByteCodeInterpreter code, int memorySize){
+        int need = this.codeSize + 2 + code.codeSize;
+        if (need > this.codeOut.length){
+            this.codeOut = Arrays.copyOf(this.codeOut, Math.max(need, this.codeOut.length * 2));
+        }
+        if (memorySize > this.memoryPublished){
+            this.codeOut[this.codeSize++] = MEMORY;
+            this.codeOut[this.codeSize++] = memorySize;
+            this.memoryPublished = memorySize;
+        }
+        System.arraycopy(code.bytecode, 0, this.codeOut, this.codeSize, code.codeSize);
+        this.codeSize += code.codeSize;
+        code.clearByteCode();
+        if (this.codeSize >= BATCH * 2){
+            this.flush();
+        }
+    }
+
+    private void flush(){
+        this.codeRing.put(this.codeOut, 0, this.codeSize);
+        this.codeSize = 0;
+    }
+
+    /**
+     * the execute stage: run the code in the ring as it comes, a batch at a time
+     */
+    private void execute(){
+        int[] in = new int[BATCH * 2];
+        int size = 0;
+        while (true) {
+            int n = this.codeRing.take(in, size, in.length - size);
+            if (n < 0){
+                return;
+            }
+            size += n;
+            int pc = 0;
+            for (; pc + 1 < size; pc += 2) {
+                if (in[pc] == MEMORY){
+                    this.interpreter.ensureMemory(in[pc + 1]);
+                }
+                else{
+                    this.interpreter.generate(in[pc], in[pc + 1]);
+                }
+            }
+            this.interpreter.runAndClear();
+            // an opcode without its operand yet
+            System.arraycopy(in, pc, in, 0, size - pc);
+            size -= pc;
+        }
+    }
+
+    /**
+     * the execute stage's interpreter, with the memory of the program once run returned
+     */
+    public ByteCodeInterpreter getInterpreter(){
+        return this.interpreter;
+    }
+
+    public IdTable getIdTable(){
+        return this.parser.getIdTable();
+    }
+
+    /**
+     * the syntax error the program stopped at, null if there was none
+     */
+    public String getError(){
+        return this.parser.getError();
+    }
+}
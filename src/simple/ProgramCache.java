@@ -0,0 +1,240 @@
+package simple;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Keeps compiled programs on disk, so a source file that did not change since the last run is not lexed and parsed again.
+ * Each valid program is saved in directory as <SHA-256 of the source and options>.sbc, an array of ints:
+ * - magic number and format version
+ * - memory size, bytecode size, number of ids, total length of the ids
+ * - the bytecode
+ * - the length of each id, by address
+ * - the chars of all ids, two to an int
+ * A warm load maps the file and runs the bytecode in place, it is only copied to the heap if it changes,
+ * see ByteCodeInterpreter.setByteCode(IntBuffer).
+ * Files are written to a temporary file and moved in place, so a process never reads a half written one.
+ * A loaded program runs from the mapping, so a cache file must be replaced like this and never truncated in place.
+ * A file that does not pass the checks is compiled and written again.
+ */
+public class ProgramCache {
+
+    public static final String EXTENSION = ".sbc";
+    private static final int MAGIC = 0x53424331;    // "SBC1"
+    private static final int VERSION = 1;
+    private static final int HEADER = 6;            // ints before the bytecode
+
+    private final Path directory;
+    private boolean optimize = false;
+    private boolean superinstructions = false;
+    private int hits = 0;
+    private int misses = 0;
+
+    /**
+     * A compiled program: bytecode in a fresh interpreter, not run yet, and the ids that address its memory.
+     */
+    public static final class Program {
+        private final ByteCodeInterpreter interpreter;
+        private final IdTable idTable;
+
+        private Program(ByteCodeInterpreter interpreter, IdTable idTable){
+            this.interpreter = interpreter;
+            this.idTable = idTable;
+        }
+
+        public ByteCodeInterpreter getInterpreter(){
+            return this.interpreter;
+        }
+
+        public IdTable getIdTable(){
+            return this.idTable;
+        }
+    }
+
+    public ProgramCache(Path directory){
+        this.directory = directory;
+    }
+
+    /**
+     * Compile with the Optimizer, see Parser.setOptimize. Programs compiled with and without it are cached apart.
+     */
+    public void setOptimize(boolean optimize){
+        this.optimize = optimize;
+    }
+
+    /**
+     * Compile with superinstructions, see Parser.setSuperinstructions. Cached apart like setOptimize.
+     */
+    public void setSuperinstructions(boolean superinstructions){
+        this.superinstructions = superinstructions;
+    }
+
+    /**
+     * Load the compiled program of a source file, compiling and saving it if it is not cached yet.
+     * The file is read once, the program compiled on a miss is that of the bytes its key is made from.
+     * Nothing is printed for a valid program, cached or not. The errors of an invalid one, which is not cached,
+     * are printed like Parser.compile does.
+     * @return the program, or null if it is invalid
+     */
+    public Program load(String file) throws IOException {
+        byte[] source = Files.readAllBytes(Paths.get(file));
+        Path path = this.directory.resolve(this.key(source) + EXTENSION);
+        if (Files.exists(path)){
+            Program program = read(path);
+            if (program != null){
+                this.hits++;
+                return program;
+            }
+        }
+        this.misses++;
+        Parser parser = new Parser();
+        parser.setQuiet(true);
+        parser.setOptimize(this.optimize);
+        parser.setSuperinstructions(this.superinstructions);
+        // decoded like the Lexer reads a file
+        parser.reset(new String(source, Charset.defaultCharset()));
+        if (!parser.compile()){
+            System.out.println(parser.getError());
+            System.out.println("Invalid Program");
+            return null;
+        }
+        write(path, parser.getInterpreter(), parser.getIdTable());
+        return new Program(parser.getInterpreter(), parser.getIdTable());
+    }
+
+    /**
+     * loads served from the disk
+     */
+    public int getHits(){
+        return this.hits;
+    }
+
+    /**
+     * loads that had to compile the source
+     */
+    public int getMisses(){
+        return this.misses;
+    }
+
+    /**
+     * hex SHA-256 of the source followed by the options it is compiled with
+     */
+    private String key(byte[] source){
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(source);
+        digest.update((byte) ((this.optimize ? 1 : 0) | (this.superinstructions ? 2 : 0)));
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * map a cached program, @return null if the file is not a complete program of this format
+     */
+    static Program read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER * 4 || length % 4 != 0){
+                return null;
+            }
+            IntBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, length).asIntBuffer();
+            if (in.get() != MAGIC || in.get() != VERSION){
+                return null;
+            }
+            int memorySize = in.get();
+            int codeSize = in.get();
+            int ids = in.get();
+            int namesLength = in.get();
+            if (memorySize < 0 || codeSize < 0 || ids < 0 || ids > memorySize || namesLength < 0
+                    || (long) codeSize + ids + (namesLength + 1) / 2 != in.remaining()){
+                return null;
+            }
+            // the code stays in the mapping, which outlives the channel
+            IntBuffer code = in.slice(HEADER, codeSize);
+            in.position(HEADER + codeSize);
+            int[] lengths = new int[ids];
+            in.get(lengths);
+            char[] names = new char[namesLength];
+            for (int i = 0; i < namesLength; i += 2) {
+                int pair = in.get();
+                names[i] = (char) (pair >>> 16);
+                if (i + 1 < namesLength){
+                    names[i + 1] = (char) pair;
+                }
+            }
+            IdTable idTable = new IdTable();
+            int offset = 0;
+            for (int address = 0; address < ids; address++) {
+                if (lengths[address] <= 0 || offset + lengths[address] > namesLength
+                        || idTable.add(names, offset, lengths[address]) != address){
+                    return null;
+                }
+                offset += lengths[address];
+            }
+            ByteCodeInterpreter interpreter = new ByteCodeInterpreter(memorySize);
+            interpreter.setByteCode(code);
+            return new Program(interpreter, idTable);
+        }
+    }
+
+    /**
+     * save a compiled program to path, replacing any file there
+     */
+    static void write(Path path, ByteCodeInterpreter interpreter, IdTable idTable) throws IOException {
+        int codeSize = interpreter.codeSize;
+        int ids = idTable.size();
+        int namesLength = 0;
+        for (int address = 0; address < ids; address++) {
+            namesLength += idTable.name(address).length();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((HEADER + codeSize + ids + (namesLength + 1) / 2) * 4);
+        IntBuffer out = buffer.asIntBuffer();
+        out.put(MAGIC).put(VERSION).put(interpreter.getMemorySize()).put(codeSize).put(ids).put(namesLength);
+        out.put(interpreter.code(), 0, codeSize);
+        for (int address = 0; address < ids; address++) {
+            out.put(idTable.name(address).length());
+        }
+        char[] names = new char[namesLength + 1];
+        int offset = 0;
+        for (int address = 0; address < ids; address++) {
+            String name = idTable.name(address);
+            name.getChars(0, name.length(), names, offset);
+            offset += name.length();
+        }
+        for (int i = 0; i < namesLength; i += 2) {
+            out.put(names[i] << 16 | names[i + 1]);
+        }
+
+        // a bare file name has no parent
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()){
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,870 @@
+package simple;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * A program kept live under edits: apply a text edit and the tokens, bytecode and memory are brought up to date
+ * without lexing, parsing and running the whole program again.
+ * - only the statements around the edit are lexed and parsed again, until the new statements line up with old ones
+ * - a statement runs again only if it is new or a slot it loads now holds a different value,
+ *   which is found from the statements writing and reading each slot
+ * Each statement keeps the value it stored, so the final memory is the value of the last statement writing each slot.
+ * Errors are the ones the Parser reports, with the same messages and line numbers.
+ * A statement that does not parse is kept as a broken piece up to where the old statements line up again,
+ * so a typo in the middle of a large program does not throw away the statements after it.
+ * Slots are given out per identifier like the Parser does and kept when an identifier is edited away,
+ * so slots of identifiers no longer assigned read 0. Memory is only meaningful while the program is valid.
+ * The text is kept by statement, in a treap by position with the statements and chars of each subtree,
+ * so finding the statement at an offset, its start or its line takes O(log n) and an edit copies no other text.
+ * @see Parser
+ */
+public class Session {
+
+    private static final long GAP = 1L << 20;      // between the order keys of statements, room to insert in between
+    private static final long KEYS = 1L << 62;     // order keys are below, so no key range overflows
+    private static final double DENSITY = 1.6;     // a range of 2^i keys is numbered again if it holds at most DENSITY^i statements
+
+    private String lead = "";                       // whitespace before the first statement
+    private final IdTable idTable = new IdTable();
+    // statements in program order, each with its text and a key that keeps their order across edits
+    private Statement root;
+    private final Random priorities = new Random(13);
+    // statements writing and reading each slot, by order key
+    private final ArrayList<TreeMap<Long, Statement>> writers = new ArrayList<>();
+    private final ArrayList<TreeMap<Long, Statement>> readers = new ArrayList<>();
+    private final TreeMap<Long, Statement> undefined = new TreeMap<>();    // statements loading an identifier not assigned before
+    private final TreeMap<Long, Statement> broken = new TreeMap<>();       // pieces that do not parse
+    private int[] memory = new int[16];
+    private int relexed;
+    private int reexecuted;
+
+    /**
+     * A session on a program, parsed and run as one edit inserting all of it.
+     */
+    public Session(String source){
+        this.edit(0, 0, source);
+    }
+
+    /**
+     * Replace removed chars at offset with inserted.
+     */
+    public void edit(int offset, int removed, String inserted){
+        int length = this.length();
+        if (offset < 0 || removed < 0 || offset + removed > length){
+            throw new IndexOutOfBoundsException("Edit " + offset + ".." + (offset + removed) + " out of bounds for length " + length);
+        }
+        int delta = inserted.length() - removed;
+        // the char before the edit may join a token of the edit, so parsing starts at the statement holding it
+        int first = this.statementAt(offset - 1);
+        int from = first == 0 ? 0 : this.start(first);
+        EditedText text = new EditedText(offset, inserted, delta, length + delta);
+        Reparse reparse = new Reparse(text, from, offset + inserted.length(), delta, first);
+        reparse.run();
+        this.relexed = reparse.parsed.size();
+        this.splice(first, reparse, text);
+    }
+
+    /**
+     * The text after an edit, read from the text of the statements before it, so nothing is copied to parse it again.
+     * Reads are mostly in order, so the piece of text holding the last char read is kept.
+     */
+    private final class EditedText implements CharSequence {
+        private final int offset;
+        private final String inserted;
+        private final int delta;
+        private final int length;
+        private String piece = "";      // lead or the text of a statement, starting at pieceStart before the edit
+        private int pieceStart = 0;
+
+        EditedText(int offset, String inserted, int delta, int length){
+            this.offset = offset;
+            this.inserted = inserted;
+            this.delta = delta;
+            this.length = length;
+        }
+
+        @Override
+        public char charAt(int index){
+            if (index < this.offset){
+                return this.old(index);
+            }
+            if (index < this.offset + this.inserted.length()){
+                return this.inserted.charAt(index - this.offset);
+            }
+            return this.old(index - this.delta);
+        }
+
+        /**
+         * the char at position before the edit
+         */
+        private char old(int position){
+            if (position < this.pieceStart || position >= this.pieceStart + this.piece.length()){
+                if (position < Session.this.lead.length()){
+                    this.piece = Session.this.lead;
+                    this.pieceStart = 0;
+                }
+                else{
+                    int i = Session.this.statementAt(position);
+                    this.piece = Session.this.get(i).text;
+                    this.pieceStart = Session.this.start(i);
+                }
+            }
+            return this.piece.charAt(position - this.pieceStart);
+        }
+
+        @Override
+        public int length(){
+            return this.length;
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end){
+            StringBuilder sb = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                sb.append(this.charAt(i));
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String toString(){
+            return this.subSequence(0, this.length).toString();
+        }
+    }
+
+    /**
+     * Lex and parse statements from a token start until they line up with the old statements again.
+     * The text from the end of the edit on is the old text moved by delta, so a new statement starting there
+     * where an old one started is followed by the same statements as before.
+     */
+    private final class Reparse {
+        private final EditedText text;
+        private final int editEnd;
+        private final int delta;
+        private final int first;
+        private final CharBuffer in;
+        private final ByteScanner scanner;      // moves the position of in past each token
+        private final TokenBuffer tokens = new TokenBuffer();
+        private int[] tokenStarts = new int[16];
+        private boolean done = false;
+        private int failed;         // token where the last broken piece was found to be broken
+        final ArrayList<Statement> parsed = new ArrayList<>();
+        int[] parsedStarts = new int[16];
+        int resume;                 // old statement the new ones are followed by
+        int end;                    // where the text of the new statements ends, the start of resume in the new text
+
+        Reparse(EditedText text, int from, int editEnd, int delta, int first){
+            this.text = text;
+            this.in = CharBuffer.wrap(text, from, text.length());
+            this.scanner = new ByteScanner(this.in);
+            this.editEnd = editEnd;
+            this.delta = delta;
+            this.first = first;
+        }
+
+        void run(){
+            while (true) {
+                if (this.kind(0) == TokenBuffer.EOF){
+                    this.resume = Session.this.count();
+                    this.end = this.text.length();
+                    if (this.first + this.parsed.size() == 0){
+                        // the Parser only skips EOF after a statement, an empty program expects an identifier
+                        this.add(new Statement("Expecting identifier", -1, new int[0]), this.text.length());
+                    }
+                    return;
+                }
+                int start = this.tokenStarts[0];
+                if (this.resumes()){
+                    return;
+                }
+                Statement statement = this.parseStatement();
+                this.add(statement, start);
+                if (statement.error != null){
+                    // skip to the next token where an old statement started, the rest of the program is as before
+                    this.consume(this.failed + 1);
+                    while (this.kind(0) != TokenBuffer.EOF && !this.resumes()) {
+                        this.consume(1);
+                    }
+                    if (this.kind(0) == TokenBuffer.EOF){
+                        this.resume = Session.this.count();
+                        this.end = this.text.length();
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * true if an old statement started at the current token, after the edit, setting resume to it
+         */
+        private boolean resumes(){
+            int start = this.tokenStarts[0];
+            if (start < this.editEnd){
+                return false;
+            }
+            int i = Session.this.statementAt(start - this.delta);
+            if (i < this.first || i >= Session.this.count() || Session.this.start(i) != start - this.delta){
+                return false;
+            }
+            this.resume = i;
+            this.end = start;
+            return true;
+        }
+
+        private void add(Statement statement, int start){
+            if (this.parsed.size() == this.parsedStarts.length){
+                this.parsedStarts = Arrays.copyOf(this.parsedStarts, this.parsedStarts.length * 2);
+            }
+            this.parsedStarts[this.parsed.size()] = start;
+            this.parsed.add(statement);
+        }
+
+        /**
+         * Parse the assignment at the first token, with the checks and messages of Parser.parseAssignment.
+         * @return the statement, or a broken piece with the error
+         */
+        private Statement parseStatement(){
+            ArrayList<Integer> reads = new ArrayList<>();
+            if (this.kind(0) != TokenBuffer.ID){
+                return this.broken("Expecting identifier", -1, reads, 0);
+            }
+            int target = this.slot(0);
+            if (this.kind(1) != TokenBuffer.ASSMT){
+                return this.broken("Expecting assignment operator", target, reads, 1);
+            }
+            int[] code = new int[8];
+            int size = 0;
+            int t = 2;
+            while (true) {
+                int kind = this.kind(t);
+                if (kind != TokenBuffer.ID && kind != TokenBuffer.INT){
+                    return this.broken("Expecting identifier or integer", target, reads, t);
+                }
+                if (code.length < size + 4){
+                    code = Arrays.copyOf(code, code.length * 2);
+                }
+                if (kind == TokenBuffer.ID){
+                    int slot = this.slot(t);
+                    reads.add(slot);
+                    code[size++] = ByteCodeInterpreter.LOAD;
+                    code[size++] = slot;
+                }
+                else{
+                    code[size++] = ByteCodeInterpreter.LOADI;
+                    try {
+                        code[size++] = this.tokens.intValue(t);
+                    } catch (NumberFormatException e) {
+                        return this.broken("Integer out of range", target, reads, t);
+                    }
+                }
+                int next = this.kind(t + 1);
+                if (next == TokenBuffer.INT){
+                    return this.broken("Expecting identifier or add operator", target, reads, t + 1);
+                }
+                if (next != TokenBuffer.PLUS){
+                    break;
+                }
+                t += 2;
+            }
+            code[size++] = ByteCodeInterpreter.STORE;
+            code[size++] = target;
+            this.consume(t + 1);
+            return new Statement(target, Arrays.copyOf(code, size), distinct(reads));
+        }
+
+        /**
+         * a broken piece for an error found at token failed, the piece goes on at least up to that token
+         */
+        private Statement broken(String message, int target, ArrayList<Integer> reads, int failed){
+            this.failed = failed;
+            return new Statement(message, target, distinct(reads));
+        }
+
+        /**
+         * slot of the identifier at token i, looked up straight from the token text
+         */
+        private int slot(int i){
+            return Session.this.idTable.add(this.tokens.text(), this.tokens.offset(i), this.tokens.length(i), this.tokens.hash(i));
+        }
+
+        /**
+         * kind of the i-th token from the current one, lexing as far as needed
+         */
+        private int kind(int i){
+            while (!this.done && i >= this.tokens.size()){
+                if (this.scanner.scan(this.tokens) == TokenBuffer.EOF){
+                    this.done = true;
+                    break;
+                }
+                int last = this.tokens.size() - 1;
+                int kind = this.tokens.kind(last);
+                int length = kind == TokenBuffer.ASSMT || kind == TokenBuffer.PLUS ? 1 : this.tokens.length(last);
+                if (last == this.tokenStarts.length){
+                    this.tokenStarts = Arrays.copyOf(this.tokenStarts, this.tokenStarts.length * 2);
+                }
+                this.tokenStarts[last] = this.in.position() - length;
+            }
+            return i < this.tokens.size() ? this.tokens.kind(i) : TokenBuffer.EOF;
+        }
+
+        /**
+         * drop the tokens of a finished statement
+         */
+        private void consume(int tokens){
+            if (tokens < this.tokens.size()){
+                System.arraycopy(this.tokenStarts, tokens, this.tokenStarts, 0, this.tokens.size() - tokens);
+            }
+            this.tokens.discard(tokens);
+        }
+    }
+
+    /**
+     * Replace the old statements first..resume with the parsed ones, then run what the change affects.
+     */
+    private void splice(int first, Reparse reparse, EditedText text){
+        // the text of the new statements, read before the old ones are taken out
+        int added = reparse.parsed.size();
+        for (int i = 0; i < added; i++) {
+            int end = i + 1 < added ? reparse.parsedStarts[i + 1] : reparse.end;
+            reparse.parsed.get(i).text = text.subSequence(reparse.parsedStarts[i], end).toString();
+        }
+        if (first == 0){
+            this.lead = text.subSequence(0, added > 0 ? reparse.parsedStarts[0] : reparse.end).toString();
+        }
+
+        Statement[] before = split(this.root, first);
+        Statement[] gone = split(before[1], reparse.resume - first);
+        ArrayList<Statement> removed = new ArrayList<>();
+        collect(gone[0], Long.MIN_VALUE, Long.MAX_VALUE, removed);
+        TreeMap<Long, Statement> work = new TreeMap<>();
+        ArrayList<long[]> changed = new ArrayList<>();     // slot and order of each writer added or removed
+        for (Statement statement : removed) {
+            this.unlink(statement);
+            if (statement.error == null){
+                changed.add(new long[]{statement.target, statement.order});
+            }
+        }
+        this.order(before[0], reparse.parsed, gone[1]);
+        Statement middle = null;
+        for (Statement statement : reparse.parsed) {
+            statement.priority = this.priorities.nextInt();
+            middle = merge(middle, update(statement));
+        }
+        this.root = merge(merge(before[0], middle), gone[1]);
+
+        while (this.writers.size() < this.idTable.size()) {
+            this.writers.add(new TreeMap<>());
+            this.readers.add(new TreeMap<>());
+        }
+        if (this.memory.length < this.idTable.size()){
+            this.memory = Arrays.copyOf(this.memory, Math.max(this.idTable.size(), this.memory.length * 2));
+        }
+        for (Statement statement : reparse.parsed) {
+            this.link(statement);
+            if (statement.error == null){
+                work.put(statement.order, statement);
+                changed.add(new long[]{statement.target, statement.order});
+            }
+        }
+        // readers that now see another writer, or none
+        for (long[] change : changed) {
+            int slot = (int) change[0];
+            this.readersUntilNextWriter(slot, change[1], true, work);
+            this.updateMemory(slot);
+        }
+        this.execute(work);
+    }
+
+    /**
+     * Give the new statements order keys between those of the statements before and after them.
+     * Without room in between, the smallest aligned range of 2^i keys around them that would hold at most
+     * DENSITY^i statements is numbered again, as in the list labelling of Bender et al., "Two simplified algorithms
+     * for maintaining order in a list". The statements in it keep their order, so none of them runs again.
+     */
+    private void order(Statement before, ArrayList<Statement> parsed, Statement after){
+        int added = parsed.size();
+        if (added == 0){
+            return;
+        }
+        long low = before == null ? 0 : last(before).order;
+        long high = after == null ? Math.min(low + (added + 1) * GAP, KEYS) : first(after).order;
+        long step = (high - low) / (added + 1);
+        if (step >= 1){
+            for (int i = 0; i < added; i++) {
+                parsed.get(i).order = low + (i + 1) * step;
+            }
+            return;
+        }
+        int level = 1;
+        long base;
+        long end;
+        while (true) {
+            base = low & -(1L << level);
+            end = base + (1L << level);
+            int inside = size(before) - countBelow(before, base) + added + countBelow(after, end);
+            if (level == 62 || inside <= Math.pow(DENSITY, level)){
+                break;
+            }
+            level++;
+        }
+        ArrayList<Statement> range = new ArrayList<>();
+        collect(before, base, end, range);
+        int moved = range.size();
+        range.addAll(parsed);
+        collect(after, base, end, range);
+        step = (end - base) / (range.size() + 1);
+        for (int i = 0; i < range.size(); i++) {
+            Statement statement = range.get(i);
+            long order = base + (i + 1) * step;
+            if (i < moved || i >= moved + added){
+                this.reorder(statement, order);
+            }
+            else{
+                statement.order = order;
+            }
+        }
+    }
+
+    /**
+     * give a linked statement another order key, which keeps its place among the others
+     */
+    private void reorder(Statement statement, long order){
+        boolean undefined = this.undefined.containsKey(statement.order);
+        this.unlink(statement);
+        statement.order = order;
+        this.link(statement);
+        if (undefined){
+            this.undefined.put(order, statement);
+        }
+    }
+
+    private int count(){
+        return size(this.root);
+    }
+
+    /**
+     * chars in the program
+     */
+    private int length(){
+        return this.lead.length() + length(this.root);
+    }
+
+    /**
+     * index of the statement whose text holds the char at position, the first one holds the whitespace before it
+     */
+    private int statementAt(int position){
+        int p = position - this.lead.length();
+        int index = 0;
+        int found = 0;
+        Statement node = this.root;
+        while (node != null) {
+            int before = length(node.left);
+            if (p < before){
+                node = node.left;
+                continue;
+            }
+            // node starts at or before position
+            found = index + size(node.left);
+            index = found + 1;
+            p -= before + node.text.length();
+            if (p < 0){
+                break;
+            }
+            node = node.right;
+        }
+        return found;
+    }
+
+    /**
+     * offset of the first token of statement index, the length of the program for the count
+     */
+    private int start(int index){
+        int start = this.lead.length();
+        Statement node = this.root;
+        while (node != null) {
+            int before = size(node.left);
+            if (index < before){
+                node = node.left;
+                continue;
+            }
+            start += length(node.left);
+            if (index == before){
+                return start;
+            }
+            start += node.text.length();
+            index -= before + 1;
+            node = node.right;
+        }
+        return start;
+    }
+
+    private Statement get(int index){
+        Statement node = this.root;
+        while (true) {
+            int before = size(node.left);
+            if (index == before){
+                return node;
+            }
+            if (index < before){
+                node = node.left;
+            }
+            else{
+                index -= before + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * - the treap of statements, ordered by position with a random priority on top of each subtree
+     */
+    private static int size(Statement node){
+        return node == null ? 0 : node.size;
+    }
+
+    private static int length(Statement node){
+        return node == null ? 0 : node.length;
+    }
+
+    private static Statement update(Statement node){
+        node.size = 1 + size(node.left) + size(node.right);
+        node.length = node.text.length() + length(node.left) + length(node.right);
+        return node;
+    }
+
+    /**
+     * @return the first count statements of node and the rest
+     */
+    private static Statement[] split(Statement node, int count){
+        if (node == null){
+            return new Statement[2];
+        }
+        if (count <= size(node.left)){
+            Statement[] parts = split(node.left, count);
+            node.left = parts[1];
+            parts[1] = update(node);
+            return parts;
+        }
+        Statement[] parts = split(node.right, count - size(node.left) - 1);
+        node.right = parts[0];
+        parts[0] = update(node);
+        return parts;
+    }
+
+    /**
+     * the statements of a followed by those of b
+     */
+    private static Statement merge(Statement a, Statement b){
+        if (a == null){
+            return b;
+        }
+        if (b == null){
+            return a;
+        }
+        if (a.priority > b.priority){
+            a.right = merge(a.right, b);
+            return update(a);
+        }
+        b.left = merge(a, b.left);
+        return update(b);
+    }
+
+    private static Statement first(Statement node){
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    private static Statement last(Statement node){
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node;
+    }
+
+    /**
+     * number of statements of node ordered before order
+     */
+    private static int countBelow(Statement node, long order){
+        int count = 0;
+        while (node != null) {
+            if (node.order < order){
+                count += size(node.left) + 1;
+                node = node.right;
+            }
+            else{
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * add the statements of node whose order is in from..to to out, in program order
+     */
+    private static void collect(Statement node, long from, long to, ArrayList<Statement> out){
+        if (node == null){
+            return;
+        }
+        if (node.order > from){
+            collect(node.left, from, to, out);
+        }
+        if (node.order >= from && node.order < to){
+            out.add(node);
+        }
+        if (node.order < to){
+            collect(node.right, from, to, out);
+        }
+    }
+
+    /**
+     * add a statement to the writers and readers of its slots, a broken piece only to broken
+     */
+    private void link(Statement statement){
+        if (statement.error != null){
+            this.broken.put(statement.order, statement);
+            return;
+        }
+        this.writers.get(statement.target).put(statement.order, statement);
+        for (int slot : statement.reads) {
+            this.readers.get(slot).put(statement.order, statement);
+        }
+    }
+
+    private void unlink(Statement statement){
+        if (statement.error != null){
+            this.broken.remove(statement.order);
+            return;
+        }
+        this.writers.get(statement.target).remove(statement.order);
+        for (int slot : statement.reads) {
+            this.readers.get(slot).remove(statement.order);
+        }
+        this.undefined.remove(statement.order);
+    }
+
+    /**
+     * add the readers of slot after order up to the next statement writing it to work,
+     * including that statement if it also reads the slot, e.g. x = x + 1
+     */
+    private void readersUntilNextWriter(int slot, long order, boolean inclusive, TreeMap<Long, Statement> work){
+        Long next = this.writers.get(slot).higherKey(order);
+        Map<Long, Statement> affected = next == null
+                ? this.readers.get(slot).tailMap(order, inclusive)
+                : this.readers.get(slot).subMap(order, inclusive, next, true);
+        work.putAll(affected);
+    }
+
+    /**
+     * Run the statements in work in program order. A statement storing a new value adds the readers of its slot,
+     * which always come later, so every statement runs after the values it loads are final.
+     */
+    private void execute(TreeMap<Long, Statement> work){
+        int reexecuted = 0;
+        while (!work.isEmpty()) {
+            Statement statement = work.pollFirstEntry().getValue();
+            reexecuted++;
+            int value = 0;
+            boolean undefined = false;
+            int[] code = statement.code;
+            for (int pc = 0; pc < code.length - 2; pc += 2) {
+                if (code[pc] == ByteCodeInterpreter.LOADI){
+                    value += code[pc + 1];
+                    continue;
+                }
+                int slot = code[pc + 1];
+                Map.Entry<Long, Statement> writer = this.writers.get(slot).lowerEntry(statement.order);
+                if (writer != null){
+                    value += writer.getValue().value;
+                }
+                else if (slot != statement.target){
+                    // the Parser adds the assigned identifier before its expression, so x = x is defined
+                    undefined = true;
+                }
+            }
+            if (undefined){
+                this.undefined.put(statement.order, statement);
+            }
+            else{
+                this.undefined.remove(statement.order);
+            }
+            if (statement.fresh || value != statement.value){
+                statement.fresh = false;
+                statement.value = value;
+                this.readersUntilNextWriter(statement.target, statement.order, false, work);
+                this.updateMemory(statement.target);
+            }
+        }
+        this.reexecuted = reexecuted;
+    }
+
+    private void updateMemory(int slot){
+        Map.Entry<Long, Statement> last = this.writers.get(slot).lastEntry();
+        this.memory[slot] = last == null ? 0 : last.getValue().value;
+    }
+
+    private static int[] distinct(ArrayList<Integer> slots){
+        return slots.stream().mapToInt(Integer::intValue).distinct().toArray();
+    }
+
+    /**
+     * true if the Parser would report a valid program
+     */
+    public boolean isValid(){
+        return this.getError() == null;
+    }
+
+    /**
+     * the first error in the program as the Parser prints it, e.g. "Error: Identifier not defined, Line 3", or null
+     */
+    public String getError(){
+        Statement statement = null;
+        if (!this.undefined.isEmpty()){
+            statement = this.undefined.firstEntry().getValue();
+        }
+        if (!this.broken.isEmpty() && (statement == null || this.broken.firstKey() < statement.order)){
+            statement = this.broken.firstEntry().getValue();
+        }
+        if (statement == null){
+            return null;
+        }
+        String message = statement.error == null ? "Identifier not defined" : statement.error;
+        for (int slot : statement.reads) {
+            // in a broken piece the loads before the syntax error are checked first
+            if (slot != statement.target && this.writers.get(slot).lowerKey(statement.order) == null){
+                message = "Identifier not defined";
+                break;
+            }
+        }
+        // the Parser counts a line per statement
+        return "Error: " + message + ", Line " + (countBelow(this.root, statement.order) + 1);
+    }
+
+    /**
+     * - get methods, built from the statements on each call
+     */
+    public String getText(){
+        StringBuilder text = new StringBuilder(this.length()).append(this.lead);
+        for (Statement statement : this.statements()) {
+            text.append(statement.text);
+        }
+        return text.toString();
+    }
+
+    public TokenBuffer getTokens(){
+        TokenBuffer tokens = new TokenBuffer(this.length() / 4 + 16);
+        Lexer.scanChunk(CharBuffer.wrap(this.getText()), tokens);
+        tokens.add(TokenBuffer.EOF);
+        return tokens;
+    }
+
+    /**
+     * bytecode of the statements that parse, the same as the Parser generates for a valid program
+     */
+    public ArrayList<Integer> getByteCode(){
+        ArrayList<Integer> code = new ArrayList<>();
+        for (Statement statement : this.statements()) {
+            if (statement.error != null){
+                continue;
+            }
+            for (int value : statement.code) {
+                code.add(value);
+            }
+        }
+        return code;
+    }
+
+    /**
+     * every statement, in program order
+     */
+    private ArrayList<Statement> statements(){
+        ArrayList<Statement> statements = new ArrayList<>(this.count());
+        collect(this.root, Long.MIN_VALUE, Long.MAX_VALUE, statements);
+        return statements;
+    }
+
+    public ArrayList<Integer> getMemory(){
+        ArrayList<Integer> memory = new ArrayList<>(this.idTable.size());
+        for (int i = 0; i < this.idTable.size(); i++) {
+            memory.add(this.memory[i]);
+        }
+        return memory;
+    }
+
+    /**
+     * value of an identifier, 0 if it was never assigned
+     */
+    public int getValue(String id){
+        int address = this.idTable.getAddress(id);
+        return address < 0 ? 0 : this.memory[address];
+    }
+
+    public IdTable getIdTable(){
+        return this.idTable;
+    }
+
+    /**
+     * statements parsed again by the last edit
+     */
+    public int getRelexed(){
+        return this.relexed;
+    }
+
+    /**
+     * statements run again by the last edit
+     */
+    public int getReexecuted(){
+        return this.reexecuted;
+    }
+
+    @Override
+    public String toString() {
+        return "Session{" +
+                "statements=" + this.count() +
+                ", valid=" + this.isValid() +
+                ", relexed=" + relexed +
+                ", reexecuted=" + reexecuted +
+                '}';
+    }
+
+    /**
+     * One assignment: its bytecode, the slot it stores to, the slots it loads and the value it stored last time it ran.
+     * A broken piece has the error instead of code, with the slots assigned and loaded before the error.
+     * It is also a node of the treap of statements, with its text from its first token up to the next statement.
+     */
+    private static final class Statement {
+        final int target;
+        final int[] code;
+        final int[] reads;
+        final String error;
+        long order;
+        int value;
+        boolean fresh = true;   // not run yet
+        String text;
+        Statement left;
+        Statement right;
+        int priority;
+        int size;               // statements in the subtree
+        int length;             // chars in the subtree
+
+        Statement(int target, int[] code, int[] reads){
+            this.target = target;
+            this.code = code;
+            this.reads = reads;
+            this.error = null;
+        }
+
+        Statement(String error, int target, int[] reads){
+            this.target = target;
+            this.code = new int[0];
+            this.reads = reads;
+            this.error = error;
+        }
+    }
+}
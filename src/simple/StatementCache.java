@@ -0,0 +1,319 @@
+package simple;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compiled statements shared by every Parser it is given to, for programs made from templates where
+ * the same assignment appears in many files, see Parser.setStatementCache.
+ * - the key is the text of the statement's tokens without whitespace, e.g. "total=a+b+c+1"
+ * - a Statement keeps no slots, so it fits any program: its identifiers are resolved against
+ *   the Parser's IdTable when it is linked
+ * - at most maxEntries statements are kept in all
+ * Entries are split over SEGMENTS independently locked LRU maps by the hash of their key,
+ * so concurrent Parsers rarely wait for each other. Once the cache is full, a put evicts the least
+ * recently used statement of its own segment, or of the next one that has any. Only puts, made on a miss,
+ * take the lock of the whole cache to count the statements and evict.
+ * Only valid statements are cached, a statement with a syntax error is always parsed.
+ * A statement is looked up by its tokens in place, see Span, only a statement put is copied into a key.
+ */
+public class StatementCache {
+
+    static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int maxEntries;
+    private int count;                  // statements put and not evicted, guarded by this
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * A compiled assignment, relocatable: an ID term holds no slot, it is linked to the slot its name has
+     * in the IdTable of the program using it. The names are those in the key.
+     * Immutable, so it is shared between threads without copying.
+     */
+    public static final class Statement {
+        final byte[] kinds;         // Ast.ID or Ast.INT of each term
+        final int[] values;         // value of each INT term
+
+        Statement(byte[] kinds, int[] values){
+            this.kinds = kinds;
+            this.values = values;
+        }
+
+        public int terms(){
+            return this.kinds.length;
+        }
+    }
+
+    /**
+     * A well formed statement in a TokenBuffer: ID ASSMT term, then PLUS term for each other term.
+     * Its hash is made from the hashes the TokenBuffer keeps, and it is compared to a key token by token,
+     * so a Parser reuses one Span to look up every statement without copying its text.
+     */
+    public static final class Span {
+        private TokenBuffer tokens;
+        private int start;
+        private int terms;
+        private int hash;
+
+        /**
+         * the statement of terms terms whose target is token start
+         */
+        public void set(TokenBuffer tokens, int start, int terms){
+            int hash = tokens.hash(start);
+            for (int t = 0; t < terms; t++) {
+                hash = 31 * hash + tokens.hash(start + 2 + 2 * t);
+            }
+            this.tokens = tokens;
+            this.start = start;
+            this.terms = terms;
+            this.hash = hash;
+        }
+
+        /**
+         * a key with a copy of the text of the tokens
+         */
+        Key key(){
+            int[] ends = new int[this.terms + 1];
+            int length = 0;
+            for (int t = 0; t <= this.terms; t++) {
+                length += this.tokens.length(this.token(t));
+                ends[t] = length;
+            }
+            char[] chars = new char[length];
+            for (int t = 0; t <= this.terms; t++) {
+                int token = this.token(t);
+                System.arraycopy(this.tokens.text(), this.tokens.offset(token), chars, ends[t] - this.tokens.length(token),
+                        this.tokens.length(token));
+            }
+            return new Key(chars, ends, this.hash);
+        }
+
+        /**
+         * token of the target for t = 0, of term t - 1 otherwise
+         */
+        private int token(int t){
+            return this.start + (t == 0 ? 0 : 2 * t);
+        }
+
+        @Override
+        public int hashCode(){
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if (!(o instanceof Key)){
+                return false;
+            }
+            Key key = (Key) o;
+            if (this.hash != key.hash || key.ends.length != this.terms + 1){
+                return false;
+            }
+            // names are short, a plain loop beats Arrays.equals on each of them
+            char[] text = this.tokens.text();
+            int c = 0;
+            for (int t = 0; t <= this.terms; t++) {
+                int token = this.token(t);
+                int offset = this.tokens.offset(token);
+                if (c + this.tokens.length(token) != key.ends[t]){
+                    return false;
+                }
+                for (; c < key.ends[t]; c++, offset++) {
+                    if (text[offset] != key.chars[c]){
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The text of the target and the terms of a statement put, packed in one array.
+     * An ID and an INT never have the same text, so the kinds of the tokens need not be kept.
+     */
+    private static final class Key {
+        private final char[] chars;
+        private final int[] ends;       // end of the target then of each term in chars
+        private final int hash;
+
+        Key(char[] chars, int[] ends, int hash){
+            this.chars = chars;
+            this.ends = ends;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode(){
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if (o instanceof Span){
+                return o.equals(this);
+            }
+            if (!(o instanceof Key)){
+                return false;
+            }
+            Key other = (Key) o;
+            return this.hash == other.hash && Arrays.equals(this.ends, other.ends) && Arrays.equals(this.chars, other.chars);
+        }
+    }
+
+    /**
+     * An LRU map of statements, guarded by its own lock.
+     * The keys are Keys, looked up by Spans.
+     */
+    private static final class Segment {
+        // access order, the eldest entry is the least recently used
+        private final LinkedHashMap<Object, Statement> map = new LinkedHashMap<>(16, 0.75f, true);
+
+        synchronized Statement get(Span span){
+            return this.map.get(span);
+        }
+
+        /**
+         * @return true if the statement was added, false if the key was already there
+         */
+        synchronized boolean putIfAbsent(Key key, Statement statement){
+            return this.map.putIfAbsent(key, statement) == null;
+        }
+
+        /**
+         * remove the least recently used statement if more than keep are left
+         */
+        synchronized boolean evict(int keep){
+            if (this.map.size() <= keep){
+                return false;
+            }
+            Iterator<Statement> eldest = this.map.values().iterator();
+            eldest.next();
+            eldest.remove();
+            return true;
+        }
+
+        synchronized int size(){
+            return this.map.size();
+        }
+
+        /**
+         * @return the number of statements removed
+         */
+        synchronized int clear(){
+            int size = this.map.size();
+            this.map.clear();
+            return size;
+        }
+    }
+
+    /**
+     * @param maxEntries statements kept at most, at least one
+     */
+    public StatementCache(int maxEntries){
+        this.maxEntries = Math.max(1, maxEntries);
+        for (int i = 0; i < SEGMENTS; i++) {
+            this.segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * the segment of a hash, by the high bits of the mixed hash, the low ones pick the bucket inside the segment
+     */
+    private static int segment(int hash){
+        return hash * 0x9E3779B9 >>> Integer.numberOfLeadingZeros(SEGMENTS - 1);
+    }
+
+    /**
+     * @return the statement compiled for the tokens of span, or null, counted as a hit or a miss
+     */
+    public Statement get(Span span){
+        Statement statement = this.segments[segment(span.hashCode())].get(span);
+        if (statement == null){
+            this.misses.increment();
+        }
+        else{
+            this.hits.increment();
+        }
+        return statement;
+    }
+
+    /**
+     * Add the statement compiled for the tokens of span, whose text is copied so the caller can reuse span.
+     * Evicts a statement if the cache is then over maxEntries.
+     */
+    public void put(Span span, Statement statement){
+        int index = segment(span.hashCode());
+        if (!this.segments[index].putIfAbsent(span.key(), statement)){
+            return;
+        }
+        // evictions are made one put at a time, so one never misses the statements another is evicting
+        synchronized (this){
+            this.count++;
+            while (this.count > this.maxEntries && this.evict(index)) {
+                this.count--;
+                this.evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Evict the least recently used statement of segment index, or of the next segment that has one.
+     * The statement just put is the most recent of its segment, so one is kept there.
+     * @return false if there was nothing to evict
+     */
+    private boolean evict(int index){
+        for (int i = 0; i < SEGMENTS; i++) {
+            if (this.segments[(index + i) % SEGMENTS].evict(i == 0 ? 1 : 0)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size(){
+        int size = 0;
+        for (Segment segment : this.segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Remove every statement, the counters are kept.
+     */
+    public void clear(){
+        synchronized (this){
+            for (Segment segment : this.segments) {
+                this.count -= segment.clear();
+            }
+        }
+    }
+
+    public long getHits(){
+        return this.hits.sum();
+    }
+
+    public long getMisses(){
+        return this.misses.sum();
+    }
+
+    public long getEvictions(){
+        return this.evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "StatementCache{" +
+                "size=" + this.size() +
+                ", hits=" + this.getHits() +
+                ", misses=" + this.getMisses() +
+                ", evictions=" + this.getEvictions() +
+                '}';
+    }
+}
@@ -1,3 +1,5 @@
+package simple;
+
 public class Token {
     public String type;
     public String value;
@@ -0,0 +1,264 @@
+package simple;
+
+import java.util.Arrays;
+
+/**
+ * A compact list of Tokens for the Parser.
+ * Each token is an int kind plus the offset/length of its text, stored in parallel int arrays,
+ * so no object is created per token. The text of IDs, INTs and UNKNOWNs is packed into one char array,
+ * which also lets a streaming Lexer drop its input window once a token is scanned.
+ * The hash of each token's text is kept with it, so the IdTable and the StatementCache don't hash it again.
+ * Token objects are only built on demand, for debugging and printing.
+ * @see Lexer
+ * @see Token
+ */
+public class TokenBuffer {
+
+    public static final int ID = 0;
+    public static final int INT = 1;
+    public static final int ASSMT = 2;
+    public static final int PLUS = 3;
+    public static final int UNKNOWN = 4;
+    public static final int EOF = 5;
+    /** Token type of each kind, as used by Token */
+    public static final String[] TYPES = {Lexer.IDTOKEN, Lexer.INTTOKEN, Lexer.ASSMTTOKEN,
+            Lexer.PLUSTOKEN, Lexer.UNKNOWNTOKEN, Lexer.EOFTOKEN};
+
+    private int[] kinds;
+    private int[] offsets;
+    private int[] lengths;
+    private int[] hashes;
+    private int size;
+    private char[] text;
+    private int textSize;
+
+    public TokenBuffer(){
+        this(16);
+    }
+
+    public TokenBuffer(int capacity){
+        this.kinds = new int[Math.max(capacity, 1)];
+        this.offsets = new int[this.kinds.length];
+        this.lengths = new int[this.kinds.length];
+        this.hashes = new int[this.kinds.length];
+        this.text = new char[this.kinds.length * 4];
+    }
+
+    /**
+     * Append one char to the text of the token being scanned.
+     */
+    public void appendChar(char c){
+        if (this.textSize == this.text.length){
+            this.text = Arrays.copyOf(this.text, this.text.length * 2);
+        }
+        this.text[this.textSize++] = c;
+    }
+
+    /**
+     * Append ASCII bytes from..to to the text of the token being scanned.
+     */
+    public void appendAscii(byte[] bytes, int from, int to){
+        if (this.textSize + to - from > this.text.length){
+            this.text = Arrays.copyOf(this.text, Math.max(this.textSize + to - from, this.text.length * 2));
+        }
+        for (int i = from; i < to; i++) {
+            this.text[this.textSize++] = (char) bytes[i];
+        }
+    }
+
+    /**
+     * Finish the token being scanned, its text is everything appended since the previous token.
+     * @return index of the new token
+     */
+    public int add(int kind){
+        if (this.size == this.kinds.length){
+            int capacity = this.kinds.length * 2;
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.offsets = Arrays.copyOf(this.offsets, capacity);
+            this.lengths = Arrays.copyOf(this.lengths, capacity);
+            this.hashes = Arrays.copyOf(this.hashes, capacity);
+        }
+        int start = this.size == 0 ? 0 : this.offsets[this.size - 1] + this.lengths[this.size - 1];
+        this.kinds[this.size] = kind;
+        this.offsets[this.size] = start;
+        this.lengths[this.size] = this.textSize - start;
+        this.hashes[this.size] = hash(this.text, start, this.textSize);
+        return this.size++;
+    }
+
+    /**
+     * Append tokens from..size of other, with their text.
+     */
+    public void append(TokenBuffer other, int from){
+        int count = other.size - from;
+        if (count <= 0){
+            return;
+        }
+        int textFrom = other.offsets[from];
+        int textCount = other.textSize - textFrom;
+        this.ensureCapacity(this.size + count, this.textSize + textCount);
+        System.arraycopy(other.kinds, from, this.kinds, this.size, count);
+        System.arraycopy(other.lengths, from, this.lengths, this.size, count);
+        System.arraycopy(other.hashes, from, this.hashes, this.size, count);
+        System.arraycopy(other.text, textFrom, this.text, this.textSize, textCount);
+        int shift = this.textSize - textFrom;
+        for (int i = 0; i < count; i++) {
+            this.offsets[this.size + i] = other.offsets[from + i] + shift;
+        }
+        this.size += count;
+        this.textSize += textCount;
+    }
+
+    /**
+     * Add the text of token i of other to the last token, for a token that was split in two.
+     */
+    public void extendLast(TokenBuffer other, int i){
+        int length = other.lengths[i];
+        this.ensureCapacity(this.size, this.textSize + length);
+        System.arraycopy(other.text, other.offsets[i], this.text, this.textSize, length);
+        this.textSize += length;
+        this.lengths[this.size - 1] += length;
+        int offset = this.offsets[this.size - 1];
+        this.hashes[this.size - 1] = hash(this.text, offset, offset + this.lengths[this.size - 1]);
+    }
+
+    /**
+     * Grow the arrays to hold at least the given number of tokens and chars of text.
+     */
+    public void ensureCapacity(int tokens, int chars){
+        if (tokens > this.kinds.length){
+            int capacity = Math.max(tokens, this.kinds.length * 2);
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.offsets = Arrays.copyOf(this.offsets, capacity);
+            this.lengths = Arrays.copyOf(this.lengths, capacity);
+            this.hashes = Arrays.copyOf(this.hashes, capacity);
+        }
+        if (chars > this.text.length){
+            this.text = Arrays.copyOf(this.text, Math.max(chars, this.text.length * 2));
+        }
+    }
+
+    public int size(){
+        return this.size;
+    }
+
+    public int kind(int i){
+        return this.kinds[i];
+    }
+
+    public int offset(int i){
+        return this.offsets[i];
+    }
+
+    public int length(int i){
+        return this.lengths[i];
+    }
+
+    /**
+     * String.hashCode of the text of token i, 0 for a token without text
+     */
+    public int hash(int i){
+        return this.hashes[i];
+    }
+
+    /**
+     * Packed text of all tokens, index with offset(i) and length(i).
+     */
+    public char[] text(){
+        return this.text;
+    }
+
+    /**
+     * text of a token, ASSMT, PLUS and EOF tokens carry no text so their usual symbol is returned
+     */
+    public String text(int i){
+        switch (this.kinds[i]){
+            case ASSMT: return "=";
+            case PLUS: return "+";
+            case EOF: return "-";
+            default: return new String(this.text, this.offsets[i], this.lengths[i]);
+        }
+    }
+
+    /**
+     * Value of an INT token, read straight from the packed text.
+     * Same result as Integer.parseInt on its text, including the NumberFormatException on overflow.
+     */
+    public int intValue(int i){
+        int value = 0;
+        int end = this.offsets[i] + this.lengths[i];
+        for (int j = this.offsets[i]; j < end; j++) {
+            int digit = Character.digit(this.text[j], 10);
+            if (digit < 0 || value > (Integer.MAX_VALUE - digit) / 10){
+                throw new NumberFormatException("For input string: \"" + this.text(i) + "\"");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * build a Token view of a single token
+     */
+    public Token token(int i){
+        return new Token(TYPES[this.kinds[i]], this.text(i));
+    }
+
+    /**
+     * Remove the first count tokens and their text, shifting the rest to the front.
+     * Used by a streaming Parser to drop the tokens of statements it has finished.
+     */
+    public void discard(int count){
+        if (count <= 0){
+            return;
+        }
+        if (count >= this.size){
+            this.clear();
+            return;
+        }
+        int textStart = this.offsets[count];
+        System.arraycopy(this.kinds, count, this.kinds, 0, this.size - count);
+        System.arraycopy(this.lengths, count, this.lengths, 0, this.size - count);
+        System.arraycopy(this.hashes, count, this.hashes, 0, this.size - count);
+        System.arraycopy(this.text, textStart, this.text, 0, this.textSize - textStart);
+        this.size -= count;
+        this.textSize -= textStart;
+        for (int i = 0; i < this.size; i++) {
+            this.offsets[i] = this.offsets[i + count] - textStart;
+        }
+    }
+
+    /**
+     * Remove every token, keeping the allocated arrays for reuse.
+     */
+    public void clear(){
+        this.size = 0;
+        this.textSize = 0;
+    }
+
+    /**
+     * String.hashCode of text[from..to]
+     */
+    static int hash(char[] text, int from, int to){
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + text[i];
+        }
+        return hash;
+    }
+
+    /**
+     * - print in the same format as an ArrayList of Token
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < this.size; i++) {
+            if (i > 0){
+                sb.append(", ");
+            }
+            sb.append(TYPES[this.kinds[i]]).append(' ').append(this.text(i));
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,320 @@
+package simple;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Array;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+
+public class LexerTest {
+
+    @Test
+    public void test(){
+        Lexer lexer = new Lexer("test.txt");
+        ArrayList<Token> tokens = lexer.getAllTokens();
+        String actual = stringifyListOfToken(tokens);
+        System.out.println("actual: "+System.lineSeparator()+ actual);
+
+        String expected ="ID xyz" + System.lineSeparator() +
+                "ASSMT =" + System.lineSeparator()+
+                "INT 33"+ System.lineSeparator()+
+                "ID zz12"+System.lineSeparator()+
+                "ASSMT ="+System.lineSeparator()+
+                "INT 99"+ System.lineSeparator()+
+                "PLUS +"+ System.lineSeparator()+
+                "INT 88"+ System.lineSeparator()+
+                "PLUS +"+ System.lineSeparator()+
+                "ID xyz"+ System.lineSeparator()+
+                "EOF -";
+        System.out.println("expect: "+System.lineSeparator()+ expected);
+        if (!expected.equals(actual)  && !expected.equals(actual.trim()))
+            Assert.fail("The string returned by your program did not match any of strings that are considered correct representation of the list of token.");
+    }
+
+
+    @Test
+    public void testExpectingAssignOp(){
+        Lexer lexer = new Lexer("testExpectingAssignOp.txt");
+        ArrayList<Token> tokens = lexer.getAllTokens();
+        String actual = stringifyListOfToken(tokens);
+        System.out.println("actual: "+System.lineSeparator()+ actual);
+
+        String expected ="ID x32" + System.lineSeparator() +
+                "INT 54" + System.lineSeparator()+
+                "ASSMT ="+System.lineSeparator()+
+                "INT 87"+System.lineSeparator()+
+                "EOF -";
+        System.out.println("expect: "+System.lineSeparator()+ expected);
+        if (!expected.equals(actual)  && !expected.equals(actual.trim()))
+            Assert.fail("The string returned by your program did not match any of strings that are considered correct representation of the list of token.");
+    }
+
+
+    @Test
+    public void testExpectingIdOrInt2(){
+        Lexer lexer = new Lexer("testExpectingIdOrInt2.txt");
+        ArrayList<Token> tokens = lexer.getAllTokens();
+        String actual = stringifyListOfToken(tokens);
+        System.out.println("actual: "+System.lineSeparator()+ actual);
+
+        String expected ="ID x" + System.lineSeparator() +
+                "ASSMT =" + System.lineSeparator()+
+                "INT 32"+System.lineSeparator()+
+                "INT 32"+System.lineSeparator()+
+                "EOF -";
+        System.out.println("expect: "+System.lineSeparator()+ expected);
+        if (!expected.equals(actual)  && !expected.equals(actual.trim()))
+            Assert.fail("The string returned by your program did not match any of strings that are considered correct representation of the list of token.");
+    }
+
+
+    @Test
+    public void testMultiplePlus(){
+        Lexer lexer = new Lexer("testMultiplePlus.txt");
+        ArrayList<Token> tokens = lexer.getAllTokens();
+        String actual = stringifyListOfToken(tokens);
+        System.out.println("actual: "+System.lineSeparator()+ actual);
+
+        String expected ="ID x32" + System.lineSeparator() +
+                "ASSMT =" + System.lineSeparator()+
+                "INT 77"+ System.lineSeparator()+
+                "ID yyy9"+System.lineSeparator()+
+                "ASSMT ="+System.lineSeparator()+
+                "ID x32"+ System.lineSeparator()+
+                "PLUS +"+ System.lineSeparator()+
+                "INT 5"+ System.lineSeparator()+
+                "PLUS +"+ System.lineSeparator()+
+                "INT 4"+ System.lineSeparator()+
+                "PLUS +"+ System.lineSeparator()+
+                "ID x32"+ System.lineSeparator()+
+                "EOF -";
+        System.out.println("expect: "+System.lineSeparator()+ expected);
+        if (!expected.equals(actual)  && !expected.equals(actual.trim()))
+            Assert.fail("The string returned by your program did not match any of strings that are considered correct representation of the list of token.");
+    }
+
+
+    @Test
+    public void testWhitespace(){
+        Lexer lexer = new Lexer("testWhitespace.txt");
+        ArrayList<Token> tokens = lexer.getAllTokens();
+        String actual = stringifyListOfToken(tokens);
+        System.out.println("actual: "+System.lineSeparator()+ actual);
+
+        String expected ="ID x32" + System.lineSeparator() +
+                "ASSMT =" + System.lineSeparator()+
+                "INT 83"+ System.lineSeparator()+
+                "PLUS +"+System.lineSeparator()+
+                "ID yzu"+ System.lineSeparator()+
+                "ID rt"+ System.lineSeparator()+
+                "ASSMT ="+ System.lineSeparator()+
+                "INT 2"+ System.lineSeparator()+
+                "EOF -";
+        System.out.println("expect: "+System.lineSeparator()+ expected);
+        if (!expected.equals(actual)  && !expected.equals(actual.trim()))
+            Assert.fail("The string returned by your program did not match any of strings that are considered correct representation of the list of token.");
+    }
+
+
+    @Test
+    public void testExpectingId2(){
+        Lexer lexer = new Lexer("testExpectingId2.txt");
+        ArrayList<Token> tokens = lexer.getAllTokens();
+        String actual = stringifyListOfToken(tokens);
+        System.out.println("actual: "+System.lineSeparator()+ actual);
+
+        String expected ="INT 32" + System.lineSeparator() +
+                "ASSMT =" + System.lineSeparator()+
+                "INT 54"+ System.lineSeparator()+
+                "EOF -";
+        System.out.println("expect: "+System.lineSeparator()+ expected);
+        if (!expected.equals(actual)  && !expected.equals(actual.trim()))
+            Assert.fail("The string returned by your program did not match any of strings that are considered correct representation of the list of token.");
+    }
+
+    @Test
+    public void testStreamingMatchesBuffered() throws Exception {
+        String[] files = {"test.txt", "testExpectingAssignOp.txt", "testMultiplePlus.txt", "testWhitespace.txt", "testOutOfBounds.txt"};
+        for (String file : files) {
+            String expected = stringifyListOfToken(new Lexer(file).getAllTokens());
+            String actual = stringifyListOfToken(new Lexer(Paths.get(file)).getAllTokens());
+            Assert.assertEquals(file, expected, actual);
+
+            // getNextToken pulls from the same stream one token at a time
+            Lexer lexer = new Lexer(Paths.get(file));
+            StringBuilder sb = new StringBuilder();
+            Token token;
+            do {
+                token = lexer.getNextToken();
+                sb.append(token.toString()).append(System.lineSeparator());
+            } while (!token.type.equals(Lexer.EOFTOKEN));
+            Assert.assertEquals(file, expected, sb.toString());
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws Exception {
+        String[] files = {"test.txt", "testExpectingAssignOp.txt", "testMultiplePlus.txt", "testWhitespace.txt", "testOutOfBounds.txt"};
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (String file : files) {
+                String expected = new Lexer(file).tokenize().toString();
+                // tiny chunks cut through identifiers and integers that have no whitespace close by
+                for (int chunkSize = 1; chunkSize <= 7; chunkSize++) {
+                    ParallelLexer lexer = new ParallelLexer(pool, chunkSize);
+                    Assert.assertEquals(file + " " + chunkSize, expected, lexer.tokenize(Paths.get(file)).toString());
+                    Assert.assertEquals(file + " " + chunkSize, expected, lexer.tokenize(new String(Files.readAllBytes(Paths.get(file)))).toString());
+                }
+            }
+            String source = "abc12def345 = 678 + x9y + 12 ab3 +\n\t?q=1";
+            for (int chunkSize = 1; chunkSize <= source.length(); chunkSize++) {
+                Assert.assertEquals("" + chunkSize, sequential(source), new ParallelLexer(pool, chunkSize).tokenize(source).toString());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testByteScannerMatchesChars() throws Exception {
+        String[] pieces = {"ab", "x1", "7", "42", " ", "\n", "\t", "=", "+", "?", "\r", "\u00e9", "\u0663", "\ud835\udd38", "\u00ff"};
+        // the last two are not ASCII compatible, every byte of them is decoded
+        Charset[] charsets = {StandardCharsets.UTF_8, StandardCharsets.US_ASCII, StandardCharsets.ISO_8859_1,
+                StandardCharsets.UTF_16LE, StandardCharsets.UTF_16};
+        Random random = new Random(19);
+        for (int program = 0; program < 500; program++) {
+            ByteArrayOutputStream source = new ByteArrayOutputStream();
+            for (int i = random.nextInt(30); i > 0; i--) {
+                if (random.nextInt(10) == 0){
+                    source.write(0x80 + random.nextInt(0x80));      // malformed in UTF-8 and US-ASCII
+                }
+                else{
+                    source.write(pieces[random.nextInt(pieces.length)].getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            byte[] bytes = source.toByteArray();
+            for (Charset charset : charsets) {
+                CharBuffer chars = charset.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                        .decode(ByteBuffer.wrap(bytes));
+                TokenBuffer expected = new TokenBuffer();
+                Lexer.scanChunk(chars, expected);
+                Assert.assertEquals(expected.toString(), scanAll(new ByteScanner(bytes, charset)));
+                // windows that cut tokens and multi-byte chars
+                for (int window = 4; window <= 9; window++) {
+                    ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(bytes));
+                    Assert.assertEquals(expected.toString(), scanAll(new ByteScanner(channel, charset, window)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTokenBuffer(){
+        // kinds, offsets and lengths of mixed tokens, the text of those that have one packed without whitespace
+        TokenBuffer tokens = new TokenBuffer(2);
+        Lexer.scanChunk(CharBuffer.wrap("total=a1 + 42\n?x = 2147483647"), tokens);
+        tokens.add(TokenBuffer.EOF);
+        int[] kinds = {TokenBuffer.ID, TokenBuffer.ASSMT, TokenBuffer.ID, TokenBuffer.PLUS, TokenBuffer.INT,
+                TokenBuffer.UNKNOWN, TokenBuffer.ID, TokenBuffer.ASSMT, TokenBuffer.INT, TokenBuffer.EOF};
+        int[] offsets = {0, 5, 5, 7, 7, 9, 10, 11, 11, 21};
+        int[] lengths = {5, 0, 2, 0, 2, 1, 1, 0, 10, 0};
+        Assert.assertEquals(kinds.length, tokens.size());
+        for (int i = 0; i < kinds.length; i++) {
+            Assert.assertEquals(kinds[i], tokens.kind(i));
+            Assert.assertEquals(offsets[i], tokens.offset(i));
+            Assert.assertEquals(lengths[i], tokens.length(i));
+        }
+        Assert.assertEquals("totala142?x2147483647", new String(tokens.text(), 0, 21));
+        Assert.assertEquals("a1", tokens.text(2));
+        Assert.assertEquals("+", tokens.text(3));
+        Assert.assertEquals(42, tokens.intValue(4));
+        Assert.assertEquals(Integer.MAX_VALUE, tokens.intValue(8));
+
+        // intValue is Integer.parseInt, overflow included
+        String[] values = {"0", "007", "2147483647", "0000002147483647", "2147483648", "2147483650", "9999999999", "99999999999999999999"};
+        for (String value : values) {
+            TokenBuffer single = new TokenBuffer();
+            single.appendAscii(value.getBytes(StandardCharsets.US_ASCII), 0, value.length());
+            single.add(TokenBuffer.INT);
+            String expected;
+            try {
+                expected = String.valueOf(Integer.parseInt(value));
+            } catch (NumberFormatException e) {
+                expected = e.getMessage();
+            }
+            String actual;
+            try {
+                actual = String.valueOf(single.intValue(0));
+            } catch (NumberFormatException e) {
+                actual = e.getMessage();
+            }
+            Assert.assertEquals(value, expected, actual);
+        }
+
+        // growth past the initial capacity, of the tokens and of their text
+        TokenBuffer grown = new TokenBuffer(1);
+        for (int i = 0; i < 1000; i++) {
+            String text = "x" + i;
+            for (int j = 0; j < text.length(); j++) {
+                grown.appendChar(text.charAt(j));
+            }
+            Assert.assertEquals(i, grown.add(TokenBuffer.ID));
+        }
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            longText.append(i % 10);
+        }
+        grown.appendAscii(longText.toString().getBytes(StandardCharsets.US_ASCII), 0, longText.length());
+        grown.add(TokenBuffer.INT);
+        Assert.assertEquals(1001, grown.size());
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(TokenBuffer.ID, grown.kind(i));
+            Assert.assertEquals("x" + i, grown.text(i));
+        }
+        Assert.assertEquals(longText.toString(), grown.text(1000));
+        Assert.assertEquals(500, grown.length(1000));
+    }
+
+    private static String scanAll(ByteScanner scanner){
+        TokenBuffer tokens = new TokenBuffer();
+        while (scanner.scan(tokens) != TokenBuffer.EOF){
+            // keep scanning
+        }
+        return tokens.toString();
+    }
+
+    private String sequential(String source) throws Exception {
+        Lexer lexer = new Lexer(Channels.newChannel(new ByteArrayInputStream(source.getBytes())));
+        return lexer.tokenize().toString();
+    }
+
+    /**
+     * Stringify the tokens into String to pass Lexer Test
+     * @param tokens ArrayList<Token>
+     * @return String
+     */
+    public String stringifyListOfToken(ArrayList<Token> tokens){
+        StringBuilder sb = new StringBuilder();
+        for(Token token: tokens){
+            sb.append(token.toString()).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,962 @@
+package simple;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.management.ObjectName;
+
+
+public class ParserInterpreterTest {
+
+    @Test
+    public void testStreamingMatchesBuffered() throws Exception {
+        String[] files = {"test.txt", "testMultiplePlus.txt", "testWhitespace2.txt"};
+        for (String file : files) {
+            Parser parser = new Parser(file);
+            parser.parseProgram();
+            Parser streaming = new Parser(Paths.get(file));
+            streaming.parseProgram();
+            Assert.assertEquals(file, parser.interpreter.getMemory(), streaming.interpreter.getMemory());
+            Assert.assertEquals(parser.idTable.toString(), streaming.idTable.toString());
+        }
+    }
+
+    @Test
+    public void testStreamingDropsFinishedStatements() throws Exception {
+        Parser parser = new Parser(Paths.get("testOutOfBounds.txt"));
+        parser.parseProgram();
+        // only the last statement "k=11" and EOF are kept, and its bytecode was dropped once run
+        Assert.assertEquals(4, parser.tokens.size());
+        Assert.assertTrue(parser.interpreter.getByteCode().isEmpty());
+    }
+
+    @Test
+    public void testInterpreterRun(){
+        ByteCodeInterpreter interpreter = new ByteCodeInterpreter(3);
+        // a = 40 + 2, b = a + a + 1, c = b
+        interpreter.generate(ByteCodeInterpreter.LOADI, 40);
+        interpreter.generate(ByteCodeInterpreter.LOADI, 2);
+        interpreter.generate(ByteCodeInterpreter.STORE, 0);
+        interpreter.generate(ByteCodeInterpreter.LOAD, 0);
+        interpreter.generate(ByteCodeInterpreter.LOAD, 0);
+        interpreter.generate(ByteCodeInterpreter.LOADI, 1);
+        interpreter.generate(ByteCodeInterpreter.STORE, 1);
+        interpreter.generate(ByteCodeInterpreter.LOAD, 1);
+        interpreter.generate(ByteCodeInterpreter.STORE, 2);
+        interpreter.run();
+        Assert.assertEquals(Arrays.asList(42, 85, 85), interpreter.getMemory());
+        Assert.assertEquals(18, interpreter.getByteCode().size());
+    }
+
+    @Test
+    public void testOptimizerKeepsMemory(){
+        String[] files = {"test.txt", "testMultiplePlus.txt", "testWhitespace2.txt", "testOutOfBounds.txt"};
+        for (String file : files) {
+            Parser parser = new Parser(file);
+            parser.parseProgram();
+            Parser optimized = new Parser(file);
+            optimized.setOptimize(true);
+            optimized.parseProgram();
+            Assert.assertEquals(file, parser.interpreter.getMemory(), optimized.interpreter.getMemory());
+        }
+    }
+
+    @Test
+    public void testOptimizerUnknownMemory(){
+        ByteCodeInterpreter interpreter = new ByteCodeInterpreter(4);
+        // memory starts as {5, 7, 0, 0}
+        interpreter.generate(ByteCodeInterpreter.LOADI, 5);
+        interpreter.generate(ByteCodeInterpreter.STORE, 0);
+        interpreter.generate(ByteCodeInterpreter.LOADI, 7);
+        interpreter.generate(ByteCodeInterpreter.STORE, 1);
+        interpreter.run();
+        interpreter.setByteCode(new int[0], 0);
+
+        // c = a + b + 1, d = 2 (dead), d = b + a + 1 (same as c), c = 1 + 2 + 3
+        int[] code = {
+                ByteCodeInterpreter.LOAD, 0, ByteCodeInterpreter.LOAD, 1, ByteCodeInterpreter.LOADI, 1, ByteCodeInterpreter.STORE, 2,
+                ByteCodeInterpreter.LOADI, 2, ByteCodeInterpreter.STORE, 3,
+                ByteCodeInterpreter.LOAD, 1, ByteCodeInterpreter.LOAD, 0, ByteCodeInterpreter.LOADI, 1, ByteCodeInterpreter.STORE, 3,
+                ByteCodeInterpreter.LOADI, 1, ByteCodeInterpreter.LOADI, 2, ByteCodeInterpreter.LOADI, 3, ByteCodeInterpreter.STORE, 2,
+        };
+        Optimizer optimizer = new Optimizer(4, false);
+        int[] optimized = optimizer.optimize(code, code.length);
+        interpreter.setByteCode(optimized, optimized.length);
+        interpreter.run();
+        Assert.assertEquals(Arrays.asList(5, 7, 6, 13), interpreter.getMemory());
+        Assert.assertEquals(1, optimizer.getDeadStores());
+        Assert.assertEquals(1, optimizer.getCommonSubexpressions());
+        Assert.assertEquals(14 - optimized.length / 2, optimizer.getEliminated());
+    }
+
+    @Test
+    public void testSuperinstructions(){
+        String[] files = {"test.txt", "testMultiplePlus.txt", "testWhitespace2.txt", "testOutOfBounds.txt"};
+        for (String file : files) {
+            Parser parser = new Parser(file);
+            parser.parseProgram();
+            Parser fused = new Parser(file);
+            fused.setSuperinstructions(true);
+            fused.parseProgram();
+            Assert.assertEquals(file, parser.interpreter.getMemory(), fused.interpreter.getMemory());
+        }
+
+        ByteCodeInterpreter interpreter = new ByteCodeInterpreter(3);
+        // a = 4, b = a, b = b + 3, c = a + b + a
+        interpreter.generate(ByteCodeInterpreter.LOADI, 4);
+        interpreter.generate(ByteCodeInterpreter.STORE, 0);
+        interpreter.generate(ByteCodeInterpreter.LOAD, 0);
+        interpreter.generate(ByteCodeInterpreter.STORE, 1);
+        interpreter.generate(ByteCodeInterpreter.LOAD, 1);
+        interpreter.generate(ByteCodeInterpreter.LOADI, 3);
+        interpreter.generate(ByteCodeInterpreter.STORE, 1);
+        interpreter.generate(ByteCodeInterpreter.LOAD, 0);
+        interpreter.generate(ByteCodeInterpreter.LOAD, 1);
+        interpreter.generate(ByteCodeInterpreter.LOAD, 0);
+        interpreter.generate(ByteCodeInterpreter.STORE, 2);
+        interpreter.fuse();
+        Assert.assertEquals(Arrays.asList(
+                ByteCodeInterpreter.STOREI, 4, 0,
+                ByteCodeInterpreter.COPY, 0, 1,
+                ByteCodeInterpreter.ADDI, 1, 3,
+                ByteCodeInterpreter.LOADN, 3, 0, 1, 0,
+                ByteCodeInterpreter.STORE, 2), interpreter.getByteCode());
+        interpreter.run();
+        Assert.assertEquals(Arrays.asList(4, 7, 15), interpreter.getMemory());
+
+        // an ADDI out of range, far past the end of the memory, halts like a STORE interpreted, compiled or off heap
+        for (int way = 0; way < 3; way++) {
+            ByteCodeInterpreter outOfRange = way == 2 ? new ByteCodeInterpreter(1, OffHeapMemory.allocate()) : new ByteCodeInterpreter(1);
+            outOfRange.generate(ByteCodeInterpreter.LOADI, 2);
+            outOfRange.generate(ByteCodeInterpreter.STORE, 0);
+            outOfRange.generate(ByteCodeInterpreter.LOAD, 1000000);
+            outOfRange.generate(ByteCodeInterpreter.LOADI, 3);
+            outOfRange.generate(ByteCodeInterpreter.STORE, 1000000);
+            outOfRange.fuse();
+            outOfRange.setCompileThreshold(way == 1 ? 0 : -1);
+            outOfRange.run();
+            Assert.assertTrue(outOfRange.isHalted());
+            Assert.assertEquals(Arrays.asList(2), outOfRange.getMemory());
+        }
+    }
+
+    @Test
+    public void testCompiledMatchesInterpreted(){
+        // a long program so the compiled code is split over several methods, with values outside of a short
+        int slots = 50;
+        ByteCodeInterpreter interpreted = new ByteCodeInterpreter(slots);
+        ByteCodeInterpreter compiled = new ByteCodeInterpreter(slots);
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            int address = random.nextInt(slots);
+            int[] instruction = random.nextBoolean()
+                    ? new int[]{ByteCodeInterpreter.LOADI, random.nextInt()}
+                    : new int[]{ByteCodeInterpreter.LOAD, random.nextInt(slots)};
+            interpreted.generate(instruction[0], instruction[1]);
+            compiled.generate(instruction[0], instruction[1]);
+            interpreted.generate(ByteCodeInterpreter.STORE, address);
+            compiled.generate(ByteCodeInterpreter.STORE, address);
+        }
+        compiled.fuse();
+        compiled.setCompileThreshold(1);
+        for (int run = 0; run < 3; run++) {
+            interpreted.run();
+            compiled.run();
+            Assert.assertEquals(run >= 1, compiled.isCompiled());
+            Assert.assertEquals(interpreted.getMemory(), compiled.getMemory());
+        }
+    }
+
+    @Test
+    public void testProgramTooLargeToCompile(){
+        // any program needs more than one method, so it is too large with a limit of one
+        int limit = JitCompiler.methodLimit;
+        JitCompiler.methodLimit = 1;
+        try {
+            ByteCodeInterpreter interpreter = new ByteCodeInterpreter(2);
+            for (int i = 0; i < 1000; i++) {
+                interpreter.generate(ByteCodeInterpreter.LOAD, 0);
+                interpreter.generate(ByteCodeInterpreter.LOADI, 1);
+                interpreter.generate(ByteCodeInterpreter.STORE, 0);
+            }
+            interpreter.setCompileThreshold(0);
+            interpreter.run();
+            interpreter.run();
+            Assert.assertFalse(interpreter.isCompiled());
+            Assert.assertEquals(1, interpreter.compiles);
+            Assert.assertEquals(Arrays.asList(2000, 0), interpreter.getMemory());
+            // changed bytecode is tried again
+            interpreter.generate(ByteCodeInterpreter.LOADI, 5);
+            interpreter.generate(ByteCodeInterpreter.STORE, 1);
+            interpreter.run();
+            Assert.assertEquals(2, interpreter.compiles);
+        } finally {
+            JitCompiler.methodLimit = limit;
+        }
+    }
+
+    @Test
+    public void testCompiledOutOfRange(){
+        ByteCodeInterpreter interpreter = new ByteCodeInterpreter(3);
+        for (int i = 0; i < 4; i++) {
+            interpreter.generate(ByteCodeInterpreter.LOADI, i + 1);
+            interpreter.generate(ByteCodeInterpreter.STORE, i);
+        }
+        interpreter.setCompileThreshold(0);
+        interpreter.run();
+        Assert.assertTrue(interpreter.isCompiled());
+        Assert.assertEquals(Arrays.asList(1, 2, 3), interpreter.getMemory());
+    }
+
+    @Test
+    public void testMemoryPerIdentifier() throws Exception {
+        // more statements than the old fixed memory, over three identifiers
+        Parser parser = new Parser("testOutOfBounds.txt");
+        parser.parseProgram();
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11), parser.interpreter.getMemory());
+
+        StringBuilder program = new StringBuilder("a = 1\nb = 2\nc = 0\n");
+        for (int i = 0; i < 10000; i++) {
+            program.append("c = c + a + b\na = a + 1\n");
+        }
+        Path file = Files.createTempFile("memory", ".txt");
+        try {
+            Files.write(file, program.toString().getBytes());
+            for (int streaming = 0; streaming < 2; streaming++) {
+                parser = streaming == 1 ? new Parser(file) : new Parser(file.toString());
+                parser.parseProgram();
+                // c = sum of (a + 2) for a = 1..10000
+                Assert.assertEquals(Arrays.asList(10001, 2, 10000 * 10001 / 2 + 2 * 10000), parser.interpreter.getMemory());
+                Assert.assertEquals(3, parser.idTable.size());
+                Assert.assertEquals(2, parser.idTable.getAddress("c"));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSequential(){
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            String[] files = {"test.txt", "testMultiplePlus.txt", "testWhitespace2.txt", "testOutOfBounds.txt"};
+            for (String file : files) {
+                Parser parser = new Parser(file);
+                parser.parseProgram();
+                Parser parallel = new Parser(file);
+                parallel.setParallel(pool);
+                parallel.parseProgram();
+                Assert.assertEquals(file, parser.interpreter.getMemory(), parallel.interpreter.getMemory());
+            }
+
+            // wide and deep parts, reassigned slots, and a store out of range near the end
+            int slots = 40;
+            Random random = new Random(11);
+            for (int fused = 0; fused < 2; fused++) {
+                ByteCodeInterpreter sequential = new ByteCodeInterpreter(slots);
+                ByteCodeInterpreter concurrent = new ByteCodeInterpreter(slots);
+                for (int i = 0; i < 5000; i++) {
+                    int terms = 1 + random.nextInt(3);
+                    for (int t = 0; t < terms; t++) {
+                        int[] instruction = random.nextBoolean()
+                                ? new int[]{ByteCodeInterpreter.LOADI, random.nextInt(100)}
+                                : new int[]{ByteCodeInterpreter.LOAD, random.nextInt(slots)};
+                        sequential.generate(instruction[0], instruction[1]);
+                        concurrent.generate(instruction[0], instruction[1]);
+                    }
+                    int address = i == 4990 ? slots : random.nextInt(slots);
+                    sequential.generate(ByteCodeInterpreter.STORE, address);
+                    concurrent.generate(ByteCodeInterpreter.STORE, address);
+                }
+                if (fused == 1){
+                    sequential.fuse();
+                    concurrent.fuse();
+                }
+                for (int run = 0; run < 2; run++) {
+                    sequential.run();
+                    concurrent.runParallel(pool);
+                    Assert.assertEquals(sequential.getMemory(), concurrent.getMemory());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testIdTable(){
+        IdTable table = new IdTable();
+        for (int i = 0; i < 100000; i++) {
+            Assert.assertEquals(i, table.add("v" + i));
+        }
+        Assert.assertEquals(5, table.add("v5"));
+        Assert.assertEquals(100000, table.size());
+        // looked up from a slice of a larger buffer
+        char[] buffer = "x = v99999 + w".toCharArray();
+        Assert.assertEquals(99999, table.getAddress(buffer, 4, 6));
+        Assert.assertEquals(-1, table.getAddress(buffer, 13, 1));
+        Assert.assertEquals(-1, table.getAddress("v100000"));
+        Assert.assertEquals("v42", table.name(42));
+    }
+
+    @Test
+    public void testSessionEdits(){
+        Session session = new Session("a = 1\nb = a + 2\nc = 5\nd = b + c\n");
+        Assert.assertEquals(Arrays.asList(1, 3, 5, 8), session.getMemory());
+        // a = 10 only runs the statements reading a, then b
+        session.edit(4, 1, "10");
+        Assert.assertEquals(Arrays.asList(10, 12, 5, 17), session.getMemory());
+        Assert.assertEquals(1, session.getRelexed());
+        Assert.assertEquals(3, session.getReexecuted());
+        // a typo keeps the statements after it, fixing it parses only the broken statement again
+        session.edit(21, 0, "+");
+        Assert.assertEquals("Error: Expecting identifier or integer, Line 3", session.getError());
+        session.edit(21, 1, "");
+        Assert.assertTrue(session.isValid());
+        Assert.assertEquals(1, session.getRelexed());
+        session.edit(0, 1, "x");
+        Assert.assertEquals("Error: Identifier not defined, Line 2", session.getError());
+        // an integer that does not fit in an int is a syntax error, like in the Parser
+        session.edit(0, 1, "a");
+        session.edit(21, 1, "2147483648");
+        Assert.assertEquals("Error: Integer out of range, Line 3", session.getError());
+        session.edit(30, 1, "7");
+        Assert.assertEquals(Integer.MAX_VALUE, session.getValue("c"));
+        Assert.assertEquals(12 + Integer.MAX_VALUE, session.getValue("d"));
+
+        // random edits give the same error, or the same value of every identifier, as the Parser on the edited text
+        String[] pieces = {"a", "b", "x1", " ", "\n", "=", "+", "7", "?", "a = 1\n", "b = a + 2\n", "a = a + b\n"};
+        Random random = new Random(5);
+        Parser reference = new Parser();
+        reference.setQuiet(true);
+        for (int program = 0; program < 300; program++) {
+            String text = "";
+            session = new Session(text);
+            for (int edit = 0; edit < 20; edit++) {
+                int offset = random.nextInt(text.length() + 1);
+                int removed = random.nextInt(Math.min(3, text.length() - offset) + 1);
+                String inserted = random.nextBoolean() ? pieces[random.nextInt(pieces.length)] : "";
+                text = text.substring(0, offset) + inserted + text.substring(offset + removed);
+                session.edit(offset, removed, inserted);
+                Assert.assertEquals(text, session.getText());
+                reference.reset(text);
+                reference.parseProgram();
+                Assert.assertEquals(text, reference.getError(), session.getError());
+                if (reference.getError() == null){
+                    IdTable ids = reference.getIdTable();
+                    for (int address = 0; address < ids.size(); address++) {
+                        String id = ids.name(address);
+                        Assert.assertEquals(text + id, reference.getValue(id), Integer.valueOf(session.getValue(id)));
+                    }
+                }
+            }
+        }
+
+        // inserting again and again at the same place runs out of room between the order keys,
+        // the statements around it are numbered again without running any of them
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            program.append('v').append(i).append(" = ").append(i).append('\n');
+        }
+        session = new Session(program.toString());
+        int offset = program.indexOf("v50 =");
+        for (int i = 0; i < 100; i++) {
+            String inserted = "w = " + i + "\n";
+            program.insert(offset, inserted);
+            session.edit(offset, 0, inserted);
+            // the new statement and the one before it, which is parsed again
+            Assert.assertEquals(2, session.getReexecuted());
+        }
+        Assert.assertEquals(program.toString(), session.getText());
+        Assert.assertEquals(0, session.getValue("w"));
+        session.edit(program.length(), 0, "z = w + v99\n");
+        Assert.assertEquals(99, session.getValue("z"));
+        Assert.assertTrue(session.isValid());
+    }
+
+    @Test
+    public void testProgramCache() throws Exception {
+        Path directory = Files.createTempDirectory("programs");
+        String[] files = {"test.txt", "testMultiplePlus.txt", "testWhitespace2.txt"};
+        for (String file : files) {
+            Parser parser = new Parser(file);
+            parser.parseProgram();
+            ProgramCache cache = new ProgramCache(directory);
+            cache.setSuperinstructions(true);
+            // nothing is printed for a valid program, whether it is compiled or cached
+            PrintStream out = System.out;
+            ByteArrayOutputStream printed = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(printed));
+            ProgramCache.Program cold;
+            ProgramCache.Program warm;
+            try {
+                cold = cache.load(file);
+                warm = cache.load(file);
+            } finally {
+                System.setOut(out);
+            }
+            Assert.assertEquals("", printed.toString());
+            Assert.assertEquals(1, cache.getMisses());
+            Assert.assertEquals(1, cache.getHits());
+            // the warm program runs from the mapped file
+            warm.getInterpreter().run();
+            Assert.assertNotNull(warm.getInterpreter().mappedCode);
+            Assert.assertEquals(file, parser.interpreter.getMemory(), warm.getInterpreter().getMemory());
+            Assert.assertEquals(file, cold.getInterpreter().getByteCode(), warm.getInterpreter().getByteCode());
+            Assert.assertEquals(file, parser.idTable.toString(), warm.getIdTable().toString());
+        }
+        // a damaged file is compiled again
+        ProgramCache cache = new ProgramCache(directory);
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory)) {
+            for (Path path : paths) {
+                Files.write(path, new byte[]{1, 2, 3, 4});
+            }
+        }
+        Assert.assertNotNull(cache.load("test.txt"));
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertNull(cache.load("testExpectingId2.txt"));
+
+        // the working directory, a path without a parent
+        ProgramCache here = new ProgramCache(Paths.get(""));
+        Assert.assertNotNull(here.load("test.txt"));
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(Paths.get(""), "*" + ProgramCache.EXTENSION)) {
+            for (Path path : paths) {
+                Files.delete(path);
+            }
+        }
+        Assert.assertEquals(1, here.getMisses());
+    }
+
+    @Test
+    public void testBatchRunner() throws Exception {
+        String[] files = {"test.txt", "testMultiplePlus.txt", "testWhitespace2.txt", "testExpectingId2.txt", "testExpectingAssignOp.txt"};
+        ArrayList<String> sources = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            for (String file : files) {
+                sources.add(new String(Files.readAllBytes(Paths.get(file))));
+            }
+        }
+        sources.add("a = 99999999999");
+        try (BatchRunner runner = new BatchRunner(3)) {
+            List<BatchRunner.Result> results = runner.run(sources);
+            Assert.assertEquals(sources.size(), runner.getPrograms());
+            for (int i = 0; i < files.length * 50; i++) {
+                Parser parser = new Parser(files[i % files.length]);
+                parser.parseProgram();
+                BatchRunner.Result result = results.get(i);
+                Assert.assertEquals(parser.getError(), result.getError());
+                if (result.isValid()){
+                    Assert.assertEquals(parser.interpreter.getMemory().toString(), Arrays.toString(result.getMemory()));
+                    for (int address = 0; address < result.getIds().length; address++) {
+                        Assert.assertEquals(parser.idTable.name(address), result.getIds()[address]);
+                    }
+                }
+            }
+            Assert.assertEquals(Integer.valueOf(77), results.get(1).getValue("x32"));
+            Assert.assertEquals("Error: Integer out of range, Line 1", results.get(sources.size() - 1).getError());
+        }
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        Metrics metrics = Metrics.get();
+        metrics.setEnabled(true);
+        try {
+            metrics.reset();
+            // x32 = 77, yyy9 = x32 + 5 + 4 + x32
+            Parser parser = new Parser("testMultiplePlus.txt");
+            parser.parseProgram();
+            Assert.assertEquals(Files.size(Paths.get("testMultiplePlus.txt")), metrics.getLexedBytes());
+            Assert.assertEquals(parser.tokens.size(), metrics.getLexedTokens());
+            Assert.assertEquals(2, metrics.getStatementsParsed());
+            Assert.assertEquals(7, metrics.getInstructionsExecuted());
+            Assert.assertEquals(Long.valueOf(2), metrics.getOpcodeCounts().get("LOAD"));
+            Assert.assertEquals(Long.valueOf(3), metrics.getOpcodeCounts().get("LOADI"));
+            Assert.assertEquals(Long.valueOf(2), metrics.getOpcodeCounts().get("STORE"));
+            Assert.assertEquals(2, metrics.getPeakMemorySlots());
+            Assert.assertTrue(metrics.getLexNanos() > 0 && metrics.getParseNanos() > 0 && metrics.getExecuteNanos() > 0);
+
+            new Parser("testExpectingId2.txt").parseProgram();
+            Assert.assertEquals(Long.valueOf(1), metrics.getErrorCounts().get("Expecting identifier"));
+            Object statements = ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(new ObjectName(Metrics.OBJECT_NAME), "StatementsParsed");
+            Assert.assertEquals(3L, statements);
+
+            // a run halted by a STORE out of range counts the instructions before it, interpreted, compiled or by lanes
+            for (int way = 0; way < 3; way++) {
+                ByteCodeInterpreter interpreter = new ByteCodeInterpreter(1);
+                interpreter.generate(ByteCodeInterpreter.LOADI, 1);
+                interpreter.generate(ByteCodeInterpreter.STORE, 0);
+                interpreter.generate(ByteCodeInterpreter.LOADI, 2);
+                interpreter.generate(ByteCodeInterpreter.STORE, 5);
+                interpreter.generate(ByteCodeInterpreter.LOADI, 3);
+                interpreter.generate(ByteCodeInterpreter.STORE, 0);
+                interpreter.setCompileThreshold(way == 1 ? 0 : -1);
+                metrics.reset();
+                if (way == 2){
+                    interpreter.runColumns(new int[][]{new int[2]}, 2);
+                }
+                else{
+                    interpreter.run();
+                }
+                Assert.assertEquals(way == 1, interpreter.isCompiled());
+                int lanes = way == 2 ? 2 : 1;
+                Assert.assertEquals(3L * lanes, metrics.getInstructionsExecuted());
+                Assert.assertEquals(Long.valueOf(2L * lanes), metrics.getOpcodeCounts().get("LOADI"));
+                Assert.assertEquals(Long.valueOf(lanes), metrics.getOpcodeCounts().get("STORE"));
+            }
+
+            metrics.setEnabled(false);
+            new Parser("testMultiplePlus.txt").parseProgram();
+            Assert.assertEquals(0, metrics.getStatementsParsed());
+        } finally {
+            metrics.setEnabled(false);
+            metrics.reset();
+        }
+    }
+
+    @Test
+    public void testColumnsMatchRun(){
+        Random random = new Random(17);
+        for (int program = 0; program < 50; program++) {
+            // random straight-line code over 4 slots
+            ByteCodeInterpreter interpreter = new ByteCodeInterpreter(4);
+            for (int statement = 0; statement < 12; statement++) {
+                for (int operand = random.nextInt(4); operand >= 0; operand--) {
+                    if (random.nextBoolean()){
+                        interpreter.generate(ByteCodeInterpreter.LOAD, random.nextInt(4));
+                    }
+                    else{
+                        interpreter.generate(ByteCodeInterpreter.LOADI, random.nextInt(100));
+                    }
+                }
+                interpreter.generate(ByteCodeInterpreter.STORE, random.nextInt(4));
+            }
+            if (program % 2 == 1){
+                interpreter.fuse();
+            }
+            int lanes = 1 + random.nextInt(40);
+            int[][] columns = new int[4][lanes];
+            int[][] initial = new int[4][lanes];
+            for (int slot = 0; slot < 4; slot++) {
+                for (int lane = 0; lane < lanes; lane++) {
+                    columns[slot][lane] = initial[slot][lane] = random.nextInt(1000);
+                }
+            }
+            interpreter.runColumns(columns, lanes);
+
+            // each lane on its own: set up its memory, then the same code
+            for (int lane = 0; lane < lanes; lane++) {
+                ByteCodeInterpreter scalar = new ByteCodeInterpreter(4);
+                for (int slot = 0; slot < 4; slot++) {
+                    scalar.generate(ByteCodeInterpreter.LOADI, initial[slot][lane]);
+                    scalar.generate(ByteCodeInterpreter.STORE, slot);
+                }
+                scalar.run();
+                scalar.setByteCode(interpreter.bytecode, interpreter.codeSize);
+                scalar.run();
+                for (int slot = 0; slot < 4; slot++) {
+                    Assert.assertEquals(scalar.getMemory().get(slot).intValue(), columns[slot][lane]);
+                }
+            }
+        }
+
+        // a store out of range halts the interpreter, as it does for run
+        ByteCodeInterpreter interpreter = new ByteCodeInterpreter(1);
+        interpreter.generate(ByteCodeInterpreter.LOADI, 1);
+        interpreter.generate(ByteCodeInterpreter.STORE, 3);
+        int[][] columns = new int[1][2];
+        interpreter.runColumns(columns, 2);
+        Assert.assertTrue(interpreter.isHalted());
+        interpreter.clearByteCode();
+        interpreter.generate(ByteCodeInterpreter.LOADI, 5);
+        interpreter.generate(ByteCodeInterpreter.STORE, 0);
+        interpreter.runAndClear();
+        Assert.assertEquals(Arrays.asList(0), interpreter.getMemory());
+    }
+
+    @Test
+    public void testAst(){
+        Parser parser = new Parser("testMultiplePlus.txt");
+        parser.parseProgram();
+        Ast ast = parser.getAst();
+        Assert.assertEquals("[ASSIGN 0 [INT 77], ASSIGN 1 [ID 0, INT 5, INT 4, ID 0]]", ast.toString());
+        Assert.assertEquals(2, ast.statements());
+        Assert.assertEquals(4, ast.children(2));
+        Assert.assertEquals(ast.size(), ast.next(2));
+
+        // the bytecode is generated from the tree
+        ByteCodeInterpreter interpreter = new ByteCodeInterpreter(parser.idTable.size());
+        ast.generate(interpreter);
+        Assert.assertEquals(parser.interpreter.getByteCode(), interpreter.getByteCode());
+    }
+
+    @Test
+    public void testLongExpression() throws Exception {
+        // deep enough to overflow the stack with one call per term
+        StringBuilder source = new StringBuilder("x = 1");
+        for (int i = 1; i < 300000; i++) {
+            source.append(" + 1");
+        }
+        source.append("\ny = x + x");
+        Path file = Files.createTempFile("long", ".txt");
+        try {
+            Files.write(file, source.toString().getBytes());
+            Parser parser = new Parser(file.toString());
+            parser.parseProgram();
+            Assert.assertEquals(Arrays.asList(300000, 600000), parser.interpreter.getMemory());
+            Assert.assertEquals(2 * (300000 + 1 + 3), parser.interpreter.getByteCode().size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testPipelineMatchesStreaming() throws Exception {
+        // tiny rings wrap all the time and split tokens and instructions, the long identifier is larger than a ring
+        String name = "v" + "x".repeat(100);
+        Random random = new Random(21);
+        Path file = Files.createTempFile("pipeline", ".txt");
+        try {
+            for (int round = 0; round < 40; round++) {
+                StringBuilder program = new StringBuilder(name + " = 1\n");
+                for (int i = 0; i < 500; i++) {
+                    program.append((char) ('a' + random.nextInt(5))).append(" = ").append(name);
+                    for (int j = random.nextInt(4); j > 0; j--) {
+                        program.append(" + ").append(random.nextInt(100));
+                    }
+                    program.append('\n');
+                }
+                if (round % 4 == 3){
+                    program.append("a = 1 + + 2\nb = 3\n");
+                }
+                Files.write(file, program.toString().getBytes());
+                Parser streaming = new Parser(file);
+                streaming.parseProgram();
+                Pipeline pipeline = new Pipeline(new Lexer(file), round % 2 == 0 ? 16 : Pipeline.RING_SIZE);
+                pipeline.run();
+                Assert.assertEquals(streaming.getError(), pipeline.getError());
+                Assert.assertEquals(streaming.interpreter.getMemory(), pipeline.getInterpreter().getMemory());
+                Assert.assertEquals(streaming.idTable.size(), pipeline.getIdTable().size());
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        // a lex thread that fails is thrown by run and not taken for the end of a valid program
+        // (the Lexer reports an IOException itself and ends the input, so the channel throws something else)
+        ReadableByteChannel failing = new ReadableByteChannel() {
+            private int reads = 0;
+
+            @Override
+            public int read(ByteBuffer buffer){
+                if (this.reads++ > 0){
+                    throw new IllegalStateException("channel gone");
+                }
+                buffer.put("a = 1\nb = a + 2\n".getBytes());
+                return 16;
+            }
+
+            @Override
+            public boolean isOpen(){
+                return true;
+            }
+
+            @Override
+            public void close(){
+            }
+        };
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed));
+        try {
+            new Pipeline(new Lexer(failing), 16).run();
+            Assert.fail("the lex failure was not thrown");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("pipeline stage failed", e.getMessage());
+        } finally {
+            System.setOut(out);
+        }
+        Assert.assertFalse(printed.toString(), printed.toString().contains("Valid Program"));
+    }
+
+    @Test
+    public void testOffHeapMemory() throws Exception {
+        String[] files = {"test.txt", "testMultiplePlus.txt", "testWhitespace2.txt", "testOutOfBounds.txt"};
+        for (String file : files) {
+            for (int optimize = 0; optimize < 2; optimize++) {
+                Parser heap = new Parser(file);
+                heap.setOptimize(optimize == 1);
+                heap.setSuperinstructions(optimize == 1);
+                heap.parseProgram();
+                Parser offHeap = new Parser(file);
+                offHeap.setMemory(OffHeapMemory.allocate());
+                offHeap.setOptimize(optimize == 1);
+                offHeap.setSuperinstructions(optimize == 1);
+                offHeap.parseProgram();
+                Assert.assertEquals(heap.interpreter.getMemory(), offHeap.interpreter.getMemory());
+            }
+        }
+
+        // grows far past the first buffer
+        ByteCodeInterpreter interpreter = new ByteCodeInterpreter(1000000, OffHeapMemory.allocate());
+        interpreter.generate(ByteCodeInterpreter.LOADI, 7);
+        interpreter.generate(ByteCodeInterpreter.STORE, 999999);
+        interpreter.run();
+        Assert.assertEquals(7, (int) interpreter.getMemory().get(999999));
+
+        // a mapped file keeps the slots of the previous run
+        Path program = Files.createTempFile("counter", ".txt");
+        Path memory = Files.createTempFile("counter", ".mem");
+        try {
+            Files.write(program, "a = a + 1\nb = a + 10\n".getBytes());
+            for (int run = 1; run <= 3; run++) {
+                OffHeapMemory slots = OffHeapMemory.map(memory);
+                Parser parser = new Parser(program.toString());
+                parser.setMemory(slots);
+                parser.setOptimize(true);
+                parser.parseProgram();
+                slots.close();
+                Assert.assertEquals(Arrays.asList(run, run + 10), parser.interpreter.getMemory());
+            }
+        } finally {
+            Files.delete(program);
+            Files.delete(memory);
+        }
+    }
+
+    @Test
+    public void testStatementCache() throws Exception {
+        // programs from a few templates, with errors, linked from the cache and parsed from scratch
+        String[] templates = {"total = a + b + c + 1", "a = 5", "b = a + 2", "c = b+a +  3", "d = x + 1", "a = 1 + + 2", "b = 3 4"};
+        StatementCache cache = new StatementCache(1000);
+        Random random = new Random(23);
+        // reset between programs, whose identifiers get other slots
+        Parser cached = new Parser();
+        cached.setQuiet(true);
+        cached.setStatementCache(cache);
+        for (int round = 0; round < 200; round++) {
+            StringBuilder program = new StringBuilder();
+            for (int i = random.nextInt(8); i >= 0; i--) {
+                program.append(templates[random.nextInt(templates.length)]).append(random.nextBoolean() ? "\n" : " ");
+            }
+            Parser parsed = new Parser();
+            parsed.setQuiet(true);
+            parsed.reset(program.toString());
+            parsed.parseProgram();
+            cached.reset(program.toString());
+            cached.parseProgram();
+            Assert.assertEquals(program.toString(), parsed.getError(), cached.getError());
+            Assert.assertEquals(program.toString(), parsed.interpreter.getByteCode(), cached.interpreter.getByteCode());
+            Assert.assertEquals(program.toString(), parsed.interpreter.getMemory(), cached.interpreter.getMemory());
+        }
+        Assert.assertTrue(cache.getHits() > 0);
+        Assert.assertTrue(cache.size() <= 5);
+        Assert.assertEquals(0, cache.getEvictions());
+
+        // a second program with the same statements is linked from the cache only
+        StatementCache fresh = new StatementCache(10);
+        for (int i = 0; i < 2; i++) {
+            Parser parser = new Parser();
+            parser.setQuiet(true);
+            parser.setStatementCache(fresh);
+            parser.reset("a = 5\nb = a + 2");
+            parser.parseProgram();
+            Assert.assertEquals(Arrays.asList(5, 7), parser.interpreter.getMemory());
+        }
+        Assert.assertEquals(2, fresh.getMisses());
+        Assert.assertEquals(2, fresh.getHits());
+
+        // maxEntries holds for the whole cache, however the statements fall into segments
+        StatementCache bounded = new StatementCache(4);
+        StringBuilder distinct = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            distinct.append('v').append(i).append(" = ").append(i).append('\n');
+        }
+        Parser filler = new Parser();
+        filler.setQuiet(true);
+        filler.setStatementCache(bounded);
+        filler.reset(distinct.toString());
+        filler.parseProgram();
+        Assert.assertEquals(4, bounded.size());
+        Assert.assertEquals(36, bounded.getEvictions());
+        filler.reset("v39 = 39");
+        filler.parseProgram();
+        Assert.assertEquals(1, bounded.getHits());
+
+        // a single entry, shared by threads
+        StatementCache small = new StatementCache(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int seed = t;
+            threads.add(new Thread(() -> {
+                try {
+                    Parser parser = new Parser();
+                    parser.setQuiet(true);
+                    parser.setStatementCache(small);
+                    for (int i = 0; i < 500; i++) {
+                        int n = (i * 7 + seed) % 40;
+                        parser.reset("v = 1\nw" + n + " = v + " + n + "\nz = w" + n + " + v");
+                        parser.parseProgram();
+                        Assert.assertEquals(Arrays.asList(1, 1 + n, 2 + n), parser.interpreter.getMemory());
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures){
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(Collections.emptyList(), failures);
+        Assert.assertEquals(1, small.size());
+        Assert.assertTrue(small.getEvictions() > 0);
+    }
+
+    @Test
+    public void testConcurrentSnapshots() throws Exception {
+        // a = a + 1, b = a over and over: between statements b is a or a - 1, a torn copy could show b ahead of a
+        for (int offHeap = 0; offHeap < 2; offHeap++) {
+            ByteCodeInterpreter interpreter = offHeap == 1 ? new ByteCodeInterpreter(2, OffHeapMemory.allocate()) : new ByteCodeInterpreter(2);
+            for (int i = 0; i < 50000; i++) {
+                interpreter.generate(ByteCodeInterpreter.LOAD, 0);
+                interpreter.generate(ByteCodeInterpreter.LOADI, 1);
+                interpreter.generate(ByteCodeInterpreter.STORE, 0);
+                interpreter.generate(ByteCodeInterpreter.LOAD, 0);
+                interpreter.generate(ByteCodeInterpreter.STORE, 1);
+            }
+            interpreter.setConcurrentReads(true);
+            Thread runner = new Thread(() -> {
+                for (int run = 0; run < 20; run++) {
+                    interpreter.run();
+                }
+            });
+            runner.start();
+            int last = 0;
+            int snapshots = 0;
+            while (runner.isAlive() || snapshots == 0) {
+                int[] memory = interpreter.snapshot();
+                Assert.assertTrue(Arrays.toString(memory), memory[0] - memory[1] == 0 || memory[0] - memory[1] == 1);
+                Assert.assertTrue(memory[0] >= last);
+                last = memory[0];
+                Assert.assertTrue(interpreter.read(0) >= last);
+                snapshots++;
+            }
+            runner.join();
+            Assert.assertArrayEquals(new int[]{1000000, 1000000}, interpreter.snapshot());
+        }
+
+        // off-heap reads while the memory grows into new buffers
+        OffHeapMemory memory = OffHeapMemory.allocate();
+        Thread writer = new Thread(() -> {
+            for (int value = 1; value <= 1 << 16; value++) {
+                memory.set(0, value);
+                memory.ensureCapacity(value);
+            }
+        });
+        writer.start();
+        int last = 0;
+        while (writer.isAlive()) {
+            int value = memory.read(0);
+            Assert.assertTrue(value >= last);
+            last = value;
+        }
+        writer.join();
+        Assert.assertEquals(1 << 16, memory.read(0));
+
+        Parser parser = new Parser("test.txt");
+        parser.parseProgram();
+        Assert.assertEquals(parser.interpreter.getMemory().get(0), parser.getValue(parser.idTable.name(0)));
+        Assert.assertNull(parser.getValue("notAnIdentifier"));
+    }
+
+    @Test
+    public void testEvaluate() throws Exception {
+        // every identifier of random valid programs, against running them
+        String[] names = {"a", "b", "c", "d"};
+        Random random = new Random(25);
+        for (int round = 0; round < 200; round++) {
+            StringBuilder program = new StringBuilder();
+            List<String> defined = new ArrayList<>();
+            for (int i = random.nextInt(30); i >= 0; i--) {
+                String target = names[random.nextInt(names.length)];
+                program.append(target).append(" = ").append(random.nextInt(1000));
+                if (!defined.contains(target)){
+                    defined.add(target);
+                }
+                for (int j = random.nextInt(4); j > 0; j--) {
+                    program.append(" + ").append(defined.get(random.nextInt(defined.size())));
+                }
+                program.append('\n');
+            }
+            Parser run = new Parser();
+            run.setQuiet(true);
+            run.reset(program.toString());
+            run.parseProgram();
+            Parser query = new Parser();
+            query.setQuiet(true);
+            query.reset(program.toString());
+            Assert.assertTrue(query.compile());
+            for (String name : defined) {
+                Assert.assertEquals(program.toString(), run.interpreter.getMemory().get(run.idTable.getAddress(name)), query.evaluate(name));
+            }
+            Assert.assertNull(query.evaluate("e"));
+        }
+
+        // two chains of statements: x only depends on its own, and a chain deeper than the stack
+        StringBuilder source = new StringBuilder("x = 1\ny = 2\n");
+        for (int i = 0; i < 200000; i++) {
+            source.append("x = x + 1\ny = y + 2\n");
+        }
+        Path file = Files.createTempFile("evaluate", ".txt");
+        try {
+            Files.write(file, source.toString().getBytes());
+            Parser parser = new Parser(file.toString());
+            parser.setQuiet(true);
+            Assert.assertTrue(parser.compile());
+            Assert.assertEquals(Integer.valueOf(200001), parser.evaluate("x"));
+            DemandEvaluator evaluator = new DemandEvaluator(parser.getAst(), parser.getIdTable());
+            Assert.assertEquals(Integer.valueOf(200001), evaluator.evaluate("x"));
+            Assert.assertEquals(200001, evaluator.getEvaluated());
+            Assert.assertEquals(Integer.valueOf(200001), evaluator.evaluate("x"));
+            Assert.assertEquals(200001, evaluator.getEvaluated());
+            Assert.assertEquals(Integer.valueOf(400002), evaluator.evaluate("y"));
+            Assert.assertEquals(evaluator.getStatements(), evaluator.getEvaluated());
+        } finally {
+            Files.delete(file);
+        }
+
+        Parser invalid = new Parser();
+        invalid.setQuiet(true);
+        invalid.reset("a = 1\nb = c");
+        Assert.assertFalse(invalid.compile());
+        try {
+            invalid.evaluate("a");
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("the program is not valid: Error: Identifier not defined, Line 2", e.getMessage());
+        }
+    }
+}
@@ -1,3 +1,5 @@
+package simple;
+
 /**
  * Create a for loop to test Parser result
  * Find expected result here:  https://docs.google.com/document/d/1Nfx15sYNPsPS3PS-qK8fjQ8VvEozeijMfCECXlYZx2o/edit#heading=h.d51f4t5t6g61